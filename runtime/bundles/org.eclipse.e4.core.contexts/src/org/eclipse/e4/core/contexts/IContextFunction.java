@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2013 IBM Corporation and others.
+ * Copyright (c) 2009, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -75,6 +75,33 @@ public interface IContextFunction {
 	 */
 	Object compute(IEclipseContext context, String contextKey);
 
+	/**
+	 * Declares the context keys the result of this function depends on.
+	 * <p>
+	 * By default <code>null</code> is returned and the function is evaluated once
+	 * for every context that requests its value. A function whose result is
+	 * determined solely by the values of a known set of context keys can return
+	 * those keys. Contexts may then share a computed result between all
+	 * requesting contexts that see identical (<code>==</code>) values for the
+	 * declared keys, instead of evaluating the function for each of them. Results
+	 * are only shared between contexts with the same root context. They are held
+	 * weakly in a bounded cache and discarded when the context they were computed
+	 * for is disposed.
+	 * </p>
+	 * <p>
+	 * Functions declaring dependencies must not access other context values, and
+	 * must not return objects that are tied to the lifecycle of the requesting
+	 * context.
+	 * </p>
+	 *
+	 * @return the context keys the result depends on, or <code>null</code> if the
+	 *         result must be computed separately for every context
+	 * @since 1.11
+	 */
+	default String[] getResultDependencies() {
+		return null;
+	}
+
 	/**
 	 * Recursively looks up the root {@link IEclipseContext} in the context
 	 * hierarchy.
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2013 IBM Corporation and others.
+ * Copyright (c) 2009, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,6 +14,7 @@
 package org.eclipse.e4.core.contexts;
 
 import java.util.Stack;
+import java.util.concurrent.Executor;
 import org.eclipse.e4.core.internal.contexts.Computation;
 import org.eclipse.e4.core.internal.contexts.EclipseContext;
 
@@ -46,6 +47,35 @@ abstract public class RunAndTrack {
 	 */
 	abstract public boolean changed(IEclipseContext context);
 
+	/**
+	 * Declares on which thread {@link #changed(IEclipseContext)} is executed when
+	 * values it depends on are modified.
+	 * <p>
+	 * By default <code>null</code> is returned and the runnable is executed
+	 * synchronously on the thread that modified the context. Runnables that are
+	 * expensive to evaluate can return an executor, for instance
+	 * {@link java.util.concurrent.ForkJoinPool#commonPool()}, to move the
+	 * re-evaluation off the modifying thread. Executions on the executor are
+	 * serialized per runnable and happen in the order of the modifications;
+	 * modifications that arrive while an execution is still pending are coalesced
+	 * into a single execution. Dependencies accessed on the executor thread are
+	 * recorded as usual.
+	 * </p>
+	 * <p>
+	 * The initial execution triggered by
+	 * {@link IEclipseContext#runAndTrack(RunAndTrack)} always happens
+	 * synchronously. This method is called once, when the runnable is associated
+	 * with the context.
+	 * </p>
+	 *
+	 * @return the executor to run updates on, or <code>null</code> to run them on
+	 *         the modifying thread
+	 * @since 1.11
+	 */
+	public Executor getExecutor() {
+		return null;
+	}
+
 	/**
 	 * Use this method to wrap calls to external code. For instance, while in {@link #changed(IEclipseContext)}.
 	 * consider calling listeners from this method. This wrapper will pause dependency recording while
@@ -24,7 +24,7 @@ import java.util.function.BiConsumer;
  * Faster then a synchronized Map.
  */
 public class ConcurrentNeutralValueMap<K, V> {// implements subset of Map<K, V>
-	final ConcurrentHashMap<K, V> delegate = new ConcurrentHashMap<>();
+	final ConcurrentHashMap<K, V> delegate;
 	/** a value that is used for null elements **/
 	final private V neutralValue;
 	final private static NullValue NULL = new NullValue();
@@ -35,6 +35,7 @@ public class ConcurrentNeutralValueMap<K, V> {// implements subset of Map<K, V>
 	 */
 	public ConcurrentNeutralValueMap(V neutralValue) {
 		this.neutralValue = neutralValue;
+		this.delegate = new ConcurrentHashMap<>();
 	}
 
 	@SuppressWarnings("unchecked")
@@ -42,6 +43,18 @@ public class ConcurrentNeutralValueMap<K, V> {// implements subset of Map<K, V>
 		this((V) NULL);
 	}
 
+	/**
+	 * Creates a map sized for the given number of entries; used for maps that
+	 * typically stay small.
+	 *
+	 * @param initialCapacity the expected number of entries
+	 */
+	@SuppressWarnings("unchecked")
+	public ConcurrentNeutralValueMap(int initialCapacity) {
+		this.neutralValue = (V) NULL;
+		this.delegate = new ConcurrentHashMap<>(initialCapacity);
+	}
+
 	private V wrapValue(V value) {
 		return value == null ? neutralValue : value;
 	}
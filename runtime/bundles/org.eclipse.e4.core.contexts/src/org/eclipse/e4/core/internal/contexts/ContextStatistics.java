@@ -0,0 +1,240 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.core.internal.contexts;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional profiler for the context tree. When enabled, every {@link EclipseContext}
+ * records per key how often it is looked up, how many parent contexts a lookup
+ * has to walk, how often a context function is evaluated and how many
+ * computations are invalidated when the key is modified.
+ * <p>
+ * Profiling is off by default and can be turned on with the system property
+ * <code>org.eclipse.e4.core.contexts.statistics=true</code> or at runtime via
+ * {@link #setEnabled(boolean)}. When disabled the cost is one volatile read per
+ * context access.
+ * </p>
+ * This class is for debug only, do not use externally.
+ */
+public final class ContextStatistics {
+
+	private static volatile boolean enabled = Boolean.getBoolean("org.eclipse.e4.core.contexts.statistics"); //$NON-NLS-1$
+
+	private static final Map<String, KeyStatistics> keys = new ConcurrentHashMap<>();
+
+	/**
+	 * Counters collected for a single context key.
+	 */
+	public static final class KeyStatistics {
+		final String name;
+		final LongAdder lookups = new LongAdder();
+		final LongAdder lookupDepth = new LongAdder();
+		final LongAccumulator maxLookupDepth = new LongAccumulator(Math::max, 0);
+		final LongAdder functionEvaluations = new LongAdder();
+		final LongAdder modifications = new LongAdder();
+		final LongAdder invalidations = new LongAdder();
+		final LongAdder scheduledUpdates = new LongAdder();
+
+		KeyStatistics(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return number of <code>get</code> calls for this key
+		 */
+		public long getLookups() {
+			return lookups.sum();
+		}
+
+		/**
+		 * @return average number of parent contexts walked to resolve this key
+		 */
+		public double getAverageLookupDepth() {
+			long count = lookups.sum();
+			return count == 0 ? 0 : (double) lookupDepth.sum() / count;
+		}
+
+		/**
+		 * @return maximum number of parent contexts walked to resolve this key
+		 */
+		public long getMaxLookupDepth() {
+			return maxLookupDepth.get();
+		}
+
+		/**
+		 * @return number of times a context function was computed for this key
+		 */
+		public long getFunctionEvaluations() {
+			return functionEvaluations.sum();
+		}
+
+		/**
+		 * @return number of <code>set</code>, <code>modify</code> and <code>remove</code> calls
+		 *         that changed the value of this key
+		 */
+		public long getModifications() {
+			return modifications.sum();
+		}
+
+		/**
+		 * @return number of computations invalidated because this key changed, summed
+		 *         over the whole context subtree
+		 */
+		public long getInvalidations() {
+			return invalidations.sum();
+		}
+
+		/**
+		 * @return number of {@link org.eclipse.e4.core.contexts.RunAndTrack} updates
+		 *         executed because this key changed
+		 */
+		public long getScheduledUpdates() {
+			return scheduledUpdates.sum();
+		}
+
+		/**
+		 * @return average number of invalidated computations per modification
+		 */
+		public double getAverageFanOut() {
+			long count = modifications.sum();
+			return count == 0 ? 0 : (double) invalidations.sum() / count;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s: lookups=%d depth(avg=%.2f, max=%d) evaluations=%d modifications=%d invalidations=%d updates=%d", //$NON-NLS-1$
+					name, getLookups(), getAverageLookupDepth(), getMaxLookupDepth(), getFunctionEvaluations(),
+					getModifications(), getInvalidations(), getScheduledUpdates());
+		}
+	}
+
+	private ContextStatistics() {
+		// static access only
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	public static void setEnabled(boolean enable) {
+		enabled = enable;
+	}
+
+	/**
+	 * Discards all collected counters.
+	 */
+	public static void reset() {
+		keys.clear();
+	}
+
+	private static KeyStatistics of(String name) {
+		return keys.computeIfAbsent(name, KeyStatistics::new);
+	}
+
+	static void recordLookup(String name, int depth) {
+		KeyStatistics statistics = of(name);
+		statistics.lookups.increment();
+		statistics.lookupDepth.add(depth);
+		statistics.maxLookupDepth.accumulate(depth);
+	}
+
+	static void recordFunctionEvaluation(String name) {
+		of(name).functionEvaluations.increment();
+	}
+
+	static void recordInvalidation(String name, int count) {
+		if (count > 0)
+			of(name).invalidations.add(count);
+	}
+
+	static void recordModification(String name, int scheduledUpdates) {
+		KeyStatistics statistics = of(name);
+		statistics.modifications.increment();
+		statistics.scheduledUpdates.add(scheduledUpdates);
+	}
+
+	/**
+	 * @return a snapshot of the counters collected so far, keyed by context key
+	 */
+	public static Map<String, KeyStatistics> getKeyStatistics() {
+		return new HashMap<>(keys);
+	}
+
+	/**
+	 * Returns the keys with the highest lookup count.
+	 *
+	 * @param limit maximum number of entries to return
+	 * @return statistics sorted by descending lookup count
+	 */
+	public static List<KeyStatistics> getHotKeys(int limit) {
+		List<KeyStatistics> result = new ArrayList<>(keys.values());
+		result.sort(Comparator.comparingLong(KeyStatistics::getLookups).reversed());
+		return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+	}
+
+	/**
+	 * Produces a human readable report of the collected counters together with the
+	 * current state of the given context tree: number of contexts, cached value
+	 * computations and listeners registered per key.
+	 *
+	 * @param root the context tree to inspect, may be <code>null</code>
+	 * @param limit maximum number of keys to list per section
+	 * @return the report
+	 */
+	public static String dump(EclipseContext root, int limit) {
+		StringBuilder result = new StringBuilder();
+		if (root != null) {
+			int[] counts = new int[2]; // contexts, cached computations
+			Map<String, Integer> listeners = new TreeMap<>();
+			collect(root, counts, listeners);
+			result.append("Contexts: ").append(counts[0]); //$NON-NLS-1$
+			result.append(", cached value computations: ").append(counts[1]).append('\n'); //$NON-NLS-1$
+			result.append("Listeners per key:\n"); //$NON-NLS-1$
+			listeners.entrySet().stream().sorted(Map.Entry.<String, Integer> comparingByValue().reversed()).limit(limit)
+					.forEach(e -> result.append('\t').append(e.getKey()).append(": ").append(e.getValue()).append('\n')); //$NON-NLS-1$
+		}
+		result.append("Hot keys:\n"); //$NON-NLS-1$
+		for (KeyStatistics statistics : getHotKeys(limit)) {
+			result.append('\t').append(statistics).append('\n');
+		}
+		return result.toString();
+	}
+
+	private static void collect(EclipseContext context, int[] counts, Map<String, Integer> listeners) {
+		counts[0]++;
+		counts[1] += context.cachedCachedContextFunctions().size();
+		for (String name : context.getRawListenerNames()) {
+			Set<Computation> computations = context.getListeners(name);
+			if (computations != null && !computations.isEmpty())
+				listeners.merge(name, computations.size(), Integer::sum);
+		}
+		for (EclipseContext child : context.getChildren()) {
+			collect(child, counts, listeners);
+		}
+	}
+}
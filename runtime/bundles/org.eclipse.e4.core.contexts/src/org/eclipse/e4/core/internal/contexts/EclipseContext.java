@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2017 IBM Corporation and others.
+ * Copyright (c) 2009, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -91,31 +91,42 @@ public class EclipseContext implements IEclipseContext {
 		}
 	}
 
-	private WeakGroupedListenerList weakListeners = new WeakGroupedListenerList();
-	private Map<String, ValueComputation> localValueComputations = new ConcurrentHashMap<>();
+	/*
+	 * Most contexts are leaves holding a handful of values. All collections below
+	 * except localValues are therefore created on first use only.
+	 */
+
+	private final WeakGroupedListenerList weakListeners = new WeakGroupedListenerList();
+	/** Lazily created, see {@link #getValueComputations()} */
+	private volatile Map<String, ValueComputation> localValueComputations;
 
 	final protected ConcurrentNeutralValueMap<String, Object> localValues = // null values allowed
-			new ConcurrentNeutralValueMap<>();
+			new ConcurrentNeutralValueMap<>(4);
 
 	private Set<String> modifiable;
 
 	private List<Computation> waiting; // list of Computations; null for all non-root entries
 
-	/** Concurrent Collection of {@link #selfRef} */
-	private final Collection<WeakReference<EclipseContext>> children = new ConcurrentLinkedDeque<>();
+	/** Concurrent Collection of {@link #selfRef}, created with the first child */
+	private volatile Collection<WeakReference<EclipseContext>> children;
 	/** The WeakReference in {@link #getParent()}'s {@link #children} */
 	private WeakReference<EclipseContext> selfRef;
-	private final StrongIterable<EclipseContext> childIterable = new StrongIterable<>(this.children);
+	private volatile Iterable<EclipseContext> childIterable = Collections.emptyList();
 
-	private Set<IContextDisposalListener> notifyOnDisposal = new HashSet<>();
+	/** Guarded by this, lazily created */
+	private Set<IContextDisposalListener> notifyOnDisposal;
 
 	static private ThreadLocal<Stack<Computation>> currentComputation = new ThreadLocal<>();
 
 	// I don't think we need to sync referenceQueue access
-	private ReferenceQueue<Object> referenceQueue = new ReferenceQueue<>();
+	private volatile ReferenceQueue<Object> referenceQueue;
 
-	private Map<Reference<?>, TrackableComputationExt> activeComputations = Collections.synchronizedMap(new HashMap<>());
-	private Set<TrackableComputationExt> activeRATs = Collections.synchronizedSet(new HashSet<>());
+	/** Guarded by this, lazily created */
+	private Map<Reference<?>, TrackableComputationExt> activeComputations;
+	/** Guarded by this, lazily created */
+	private Set<TrackableComputationExt> activeRATs;
+	/** Guarded by this, lazily created on root contexts only */
+	private SharedFunctionResults sharedResults;
 
 	private final static Object[] nullArgs = new Object[] {null};
 
@@ -166,10 +177,14 @@ public class EclipseContext implements IEclipseContext {
 		ContextChangeEvent event = new ContextChangeEvent(this, ContextChangeEvent.DISPOSE, null, null, null);
 
 		Set<Computation> allComputations = new HashSet<>();
-		allComputations.addAll(activeComputations.values());
-		allComputations.addAll(activeRATs);
-		activeComputations.clear();
-		activeRATs.clear();
+		synchronized (this) {
+			if (activeComputations != null)
+				allComputations.addAll(activeComputations.values());
+			if (activeRATs != null)
+				allComputations.addAll(activeRATs);
+			activeComputations = null;
+			activeRATs = null;
+		}
 
 		Set<Scheduled> scheduled = new LinkedHashSet<>();
 		allComputations.addAll(getListeners());
@@ -179,16 +194,30 @@ public class EclipseContext implements IEclipseContext {
 		}
 		processScheduled(scheduled);
 
-		synchronized (notifyOnDisposal) {
-			for (IContextDisposalListener listener : notifyOnDisposal) {
+		Set<IContextDisposalListener> disposalListeners;
+		synchronized (this) {
+			disposalListeners = notifyOnDisposal;
+			notifyOnDisposal = null;
+		}
+		if (disposalListeners != null) {
+			for (IContextDisposalListener listener : disposalListeners) {
 				listener.disposed(this);
 			}
-			notifyOnDisposal.clear();
 		}
-		localValueComputations.values().removeIf(computation -> {
-			computation.dispose();
-			return true;
-		});
+		Map<String, ValueComputation> computations = localValueComputations;
+		if (computations != null) {
+			computations.values().removeIf(computation -> {
+				computation.dispose();
+				return true;
+			});
+		}
+		EclipseContext root = getRoot();
+		SharedFunctionResults shared;
+		synchronized (root) {
+			shared = root.sharedResults;
+		}
+		if (shared != null)
+			shared.remove(this);
 
 		// if this was the parent's active child, deactivate it
 		EclipseContext parent = getParent();
@@ -225,18 +254,40 @@ public class EclipseContext implements IEclipseContext {
 	@Override
 	public Object get(String name) {
 		trackAccess(name);
+		if (ContextStatistics.isEnabled())
+			ContextStatistics.recordLookup(name, lookupDepth(name));
 		return internalGet(this, name, false);
 	}
 
 	@Override
 	public Object getLocal(String name) {
 		trackAccess(name);
+		if (ContextStatistics.isEnabled())
+			ContextStatistics.recordLookup(name, 0);
 		return internalGet(this, name, true);
 	}
 
+	/**
+	 * Number of parent contexts that have to be walked until the name is found; the
+	 * full depth of the chain if it is not defined at all. Only used for statistics.
+	 */
+	private int lookupDepth(String name) {
+		Map<String, ValueComputation> computations = localValueComputations;
+		if (computations != null && computations.containsKey(name))
+			return 0;
+		int depth = 0;
+		for (EclipseContext context = this; context != null; context = context.getParent()) {
+			if (context.isSetLocally(name))
+				return depth;
+			depth++;
+		}
+		return depth;
+	}
+
 	public Object internalGet(EclipseContext originatingContext, String name, boolean local) {
-		if (this == originatingContext) {
-			ValueComputation valueComputation = localValueComputations.get(name);
+		Map<String, ValueComputation> computations = localValueComputations;
+		if (this == originatingContext && computations != null) {
+			ValueComputation valueComputation = computations.get(name);
 			if (valueComputation != null) {
 				Object result = valueComputation.get();
 				if (result != IInjector.NOT_A_VALUE) {
@@ -261,7 +312,7 @@ public class EclipseContext implements IEclipseContext {
 				ValueComputation valueComputation = new ValueComputation(name, originatingContext, ((IContextFunction) result));
 				// do calculations before adding listeners
 				result = valueComputation.get();
-				originatingContext.localValueComputations.put(name, valueComputation);
+				originatingContext.getValueComputations().put(name, valueComputation);
 			}
 			if (result != IInjector.NOT_A_VALUE) {
 				return result;
@@ -277,6 +328,20 @@ public class EclipseContext implements IEclipseContext {
 		return null;
 	}
 
+	private Map<String, ValueComputation> getValueComputations() {
+		Map<String, ValueComputation> computations = localValueComputations;
+		if (computations == null) {
+			synchronized (this) {
+				computations = localValueComputations;
+				if (computations == null) {
+					computations = new ConcurrentHashMap<>(4);
+					localValueComputations = computations;
+				}
+			}
+		}
+		return computations;
+	}
+
 	/**
 	 * The given name has been modified or removed in this context. Invalidate all local value
 	 * computations and listeners that depend on this name.
@@ -284,13 +349,15 @@ public class EclipseContext implements IEclipseContext {
 	public void invalidate(String name, int eventType, Object oldValue, Object newValue, Set<Scheduled> scheduled) {
 		ContextChangeEvent event = new ContextChangeEvent(this, eventType, null, name, oldValue);
 
-		ValueComputation newComputation = localValueComputations.computeIfPresent(name, (k, computation) -> {
-			if (computation.shouldRemove(event)) {
-				weakListeners.remove(computation);
-				return null; // remove
-			}
-			return computation; // keep
-		});
+		Map<String, ValueComputation> computations = localValueComputations;
+		ValueComputation newComputation = computations == null ? null
+				: computations.computeIfPresent(name, (k, computation) -> {
+					if (computation.shouldRemove(event)) {
+						weakListeners.remove(computation);
+						return null; // remove
+					}
+					return computation; // keep
+				});
 		if (newComputation != null) {
 			newComputation.handleInvalid(event, scheduled);
 		}
@@ -300,6 +367,10 @@ public class EclipseContext implements IEclipseContext {
 				listener.handleInvalid(event, scheduled);
 			}
 		}
+		if (ContextStatistics.isEnabled()) {
+			int count = (newComputation != null ? 1 : 0) + (namedComputations != null ? namedComputations.size() : 0);
+			ContextStatistics.recordInvalidation(name, count);
+		}
 		boolean addedOrRemoved = eventType == ContextChangeEvent.ADDED || eventType == ContextChangeEvent.REMOVED;
 		// invalidate this name in child contexts
 		for (EclipseContext childContext : getChildren()) {
@@ -327,6 +398,8 @@ public class EclipseContext implements IEclipseContext {
 			Object oldValue = localValues.remove(name);
 			Set<Scheduled> scheduled = new LinkedHashSet<>();
 			invalidate(name, ContextChangeEvent.REMOVED, oldValue, IInjector.NOT_A_VALUE, scheduled);
+			if (ContextStatistics.isEnabled())
+				ContextStatistics.recordModification(name, scheduled.size());
 			processScheduled(scheduled);
 		}
 	}
@@ -338,17 +411,31 @@ public class EclipseContext implements IEclipseContext {
 		boolean result = computation.update(event);
 		if (result) {
 			Reference<Object> ref = computation.getReference();
-			if (ref != null)
-				activeComputations.put(ref, computation);
-			else
-				activeRATs.add(computation);
+			synchronized (this) {
+				if (ref != null) {
+					if (activeComputations == null)
+						activeComputations = new HashMap<>(4);
+					activeComputations.put(ref, computation);
+				} else {
+					if (activeRATs == null)
+						activeRATs = new HashSet<>(4);
+					activeRATs.add(computation);
+				}
+			}
 		}
 	}
 
 	public void removeRAT(Computation computation) {
 		// remove from listeners
 		weakListeners.remove(computation);
-		activeRATs.remove(computation);
+		synchronized (this) {
+			if (activeRATs != null)
+				activeRATs.remove(computation);
+		}
+	}
+
+	private synchronized TrackableComputationExt removeActiveComputation(Reference<?> ref) {
+		return activeComputations == null ? null : activeComputations.remove(ref);
 	}
 
 	protected void processScheduled(Set<Scheduled> scheduledList) {
@@ -369,15 +456,18 @@ public class EclipseContext implements IEclipseContext {
 		if (!containsKey || oldValue != value) {
 			Set<Scheduled> scheduled = new LinkedHashSet<>();
 			invalidate(name, ContextChangeEvent.ADDED, oldValue, value, scheduled);
+			if (ContextStatistics.isEnabled())
+				ContextStatistics.recordModification(name, scheduled.size());
 			processScheduled(scheduled);
 		}
 
 		// cleanup unused computation listeners
-		Reference<?> ref = referenceQueue.poll();
+		ReferenceQueue<Object> queue = referenceQueue;
+		Reference<?> ref = queue == null ? null : queue.poll();
 		if (ref != null) {
 			ContextChangeEvent event = new ContextChangeEvent(this, ContextChangeEvent.UNINJECTED, nullArgs, null, null);
-			for (; ref != null; ref = referenceQueue.poll()) {
-				TrackableComputationExt obsoleteComputation = activeComputations.remove(ref);
+			for (; ref != null; ref = queue.poll()) {
+				TrackableComputationExt obsoleteComputation = removeActiveComputation(ref);
 				if (obsoleteComputation == null)
 					continue;
 				obsoleteComputation.update(event);
@@ -390,6 +480,8 @@ public class EclipseContext implements IEclipseContext {
 		Set<Scheduled> scheduled = new LinkedHashSet<>();
 		if (!internalModify(name, value, scheduled))
 			set(name, value);
+		else if (ContextStatistics.isEnabled())
+			ContextStatistics.recordModification(name, scheduled.size());
 		processScheduled(scheduled);
 	}
 
@@ -512,12 +604,15 @@ public class EclipseContext implements IEclipseContext {
 	}
 
 	protected void invalidateLocalComputations(Set<Scheduled> scheduled) {
-		ContextChangeEvent event = new ContextChangeEvent(this, ContextChangeEvent.ADDED, null, null, null);
-		localValueComputations.values().removeIf(computation -> {
-			weakListeners.remove(computation);
-			computation.handleInvalid(event, scheduled);
-			return true;
-		});
+		Map<String, ValueComputation> computations = localValueComputations;
+		if (computations != null && !computations.isEmpty()) {
+			ContextChangeEvent event = new ContextChangeEvent(this, ContextChangeEvent.ADDED, null, null, null);
+			computations.values().removeIf(computation -> {
+				weakListeners.remove(computation);
+				computation.handleInvalid(event, scheduled);
+				return true;
+			});
+		}
 
 		// We need to cleanup computations recursively see bug 468048
 		for (EclipseContext c : getChildren()) {
@@ -575,8 +670,32 @@ public class EclipseContext implements IEclipseContext {
 		return root;
 	}
 
+	/**
+	 * @return the cache of context function results shared by the contexts
+	 *         below the root of this context
+	 */
+	SharedFunctionResults getSharedResults() {
+		EclipseContext root = getRoot();
+		synchronized (root) {
+			if (root.sharedResults == null)
+				root.sharedResults = new SharedFunctionResults();
+			return root.sharedResults;
+		}
+	}
+
 	private void addChild(WeakReference<EclipseContext> ref) {
-		children.add(ref);
+		Collection<WeakReference<EclipseContext>> childRefs = children;
+		if (childRefs == null) {
+			synchronized (this) {
+				childRefs = children;
+				if (childRefs == null) {
+					childRefs = new ConcurrentLinkedDeque<>();
+					childIterable = new StrongIterable<>(childRefs);
+					children = childRefs;
+				}
+			}
+		}
+		childRefs.add(ref);
 	}
 
 	@Override
@@ -626,10 +745,10 @@ public class EclipseContext implements IEclipseContext {
 		return result;
 	}
 
-	public void notifyOnDisposal(IContextDisposalListener listener) {
-		synchronized (notifyOnDisposal) {
-			notifyOnDisposal.add(listener);
-		}
+	public synchronized void notifyOnDisposal(IContextDisposalListener listener) {
+		if (notifyOnDisposal == null)
+			notifyOnDisposal = new HashSet<>(4);
+		notifyOnDisposal.add(listener);
 	}
 
 	@Override
@@ -706,8 +825,11 @@ public class EclipseContext implements IEclipseContext {
 
 	// This method is for debug only, do not use externally
 	public Map<String, Object> cachedCachedContextFunctions() {
-		Map<String, Object> result = new HashMap<>(localValueComputations.size());
-		for (Map.Entry<String, ValueComputation> entry : localValueComputations.entrySet()) {
+		Map<String, ValueComputation> computations = localValueComputations;
+		if (computations == null)
+			return new HashMap<>();
+		Map<String, Object> result = new HashMap<>(computations.size());
+		for (Map.Entry<String, ValueComputation> entry : computations.entrySet()) {
 			if (entry.getValue() != null) {
 				Object r = entry.getValue();
 				if (r != IInjector.NOT_A_VALUE) {
@@ -774,7 +896,17 @@ public class EclipseContext implements IEclipseContext {
 	}
 
 	public WeakReference<Object> trackedWeakReference(Object object) {
-		return new WeakReference<>(object, referenceQueue);
+		ReferenceQueue<Object> queue = referenceQueue;
+		if (queue == null) {
+			synchronized (this) {
+				queue = referenceQueue;
+				if (queue == null) {
+					queue = new ReferenceQueue<>();
+					referenceQueue = queue;
+				}
+			}
+		}
+		return new WeakReference<>(object, queue);
 	}
 
 	public void cleanup() {
@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.core.internal.contexts;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.eclipse.e4.core.contexts.IContextFunction;
+
+/**
+ * Bounded cache of context function results shared between the contexts below
+ * one root context, see {@link EclipseContext#getSharedResults()}. Results are
+ * keyed by the function instance, the context key and the values of the
+ * dependencies declared by {@link IContextFunction#getResultDependencies()}, all
+ * compared by identity. A changed dependency value produces a different key, so
+ * entries never need explicit invalidation; stale entries are evicted in least
+ * recently used order.
+ * <p>
+ * The function, the dependency values, the result and the context that
+ * computed it are only weakly referenced. An entry is dropped as soon as one of
+ * them is garbage collected, or when the computing context is disposed.
+ * </p>
+ * <p>
+ * The maximum number of entries of each cache can be set with the system
+ * property <code>org.eclipse.e4.core.contexts.sharedResults</code>.
+ * </p>
+ */
+public final class SharedFunctionResults {
+
+	private static final int MAX_SIZE = Integer.getInteger("org.eclipse.e4.core.contexts.sharedResults", 512); //$NON-NLS-1$
+
+	/** Guarded by this */
+	private final Map<Key, Result> results;
+
+	private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+	/**
+	 * Weak reference to a part of an entry, removing the entry once cleared.
+	 */
+	private static final class Ref extends WeakReference<Object> {
+		final Key key;
+
+		Ref(Object referent, Key key, ReferenceQueue<Object> queue) {
+			super(referent, queue);
+			this.key = key;
+		}
+	}
+
+	private static final class Key {
+		private final String name;
+		// the function followed by the dependency values; a stored key holds
+		// weak references to the non-null ones
+		private final Object[] parts;
+		private final int hashCode;
+
+		Key(IContextFunction function, String name, Object[] values) {
+			this.name = name;
+			this.parts = new Object[values.length + 1];
+			parts[0] = function;
+			System.arraycopy(values, 0, parts, 1, values.length);
+			int result = name.hashCode();
+			for (Object part : parts) {
+				result = 31 * result + System.identityHashCode(part);
+			}
+			this.hashCode = result;
+		}
+
+		void makeWeak(ReferenceQueue<Object> queue) {
+			for (int i = 0; i < parts.length; i++) {
+				if (parts[i] != null)
+					parts[i] = new Ref(parts[i], this, queue);
+			}
+		}
+
+		private static Object part(Object part) {
+			if (part instanceof Ref) {
+				Object referent = ((Ref) part).get();
+				// a cleared reference matches nothing, not even null
+				return referent == null ? part : referent;
+			}
+			return part;
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			if (hashCode != other.hashCode || !name.equals(other.name) || parts.length != other.parts.length)
+				return false;
+			for (int i = 0; i < parts.length; i++) {
+				if (part(parts[i]) != part(other.parts[i]))
+					return false;
+			}
+			return true;
+		}
+	}
+
+	private static final class Result {
+		final Key key;
+		final Ref result;
+		final Ref context;
+
+		Result(Object result, EclipseContext context, Key key, ReferenceQueue<Object> queue) {
+			this.key = key;
+			this.result = new Ref(result, key, queue);
+			this.context = new Ref(context, key, queue);
+		}
+	}
+
+	public SharedFunctionResults() {
+		this(MAX_SIZE);
+	}
+
+	public SharedFunctionResults(int maxSize) {
+		results = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Result> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Returns the result shared for the given dependency values, computing and
+	 * caching it if needed. The computation runs without holding the cache lock;
+	 * if two contexts compute the same result concurrently the first one cached
+	 * wins.
+	 *
+	 * @param context
+	 *            the context the result is computed for
+	 */
+	public Object get(IContextFunction function, String name, Object[] values, EclipseContext context,
+			Supplier<Object> computation) {
+		Key key = new Key(function, name, values);
+		synchronized (this) {
+			expunge();
+			Result entry = results.get(key);
+			Object result = entry == null ? null : entry.result.get();
+			if (result != null)
+				return result;
+		}
+		Object computed = computation.get();
+		if (computed == null)
+			return null; // not shared, a null result is cheap to recompute
+		synchronized (this) {
+			Result entry = results.get(key);
+			Object existing = entry == null ? null : entry.result.get();
+			if (existing != null)
+				return existing;
+			if (entry != null)
+				results.remove(key); // replace the stored key as well
+			key.makeWeak(queue);
+			results.put(key, new Result(computed, context, key, queue));
+			return computed;
+		}
+	}
+
+	/**
+	 * Discards the results computed for the given context.
+	 */
+	public synchronized void remove(EclipseContext context) {
+		expunge();
+		for (Iterator<Result> i = results.values().iterator(); i.hasNext();) {
+			if (i.next().context.get() == context)
+				i.remove();
+		}
+	}
+
+	/**
+	 * @return the number of cached results
+	 */
+	public synchronized int size() {
+		expunge();
+		return results.size();
+	}
+
+	/**
+	 * Discards all shared results.
+	 */
+	public synchronized void clear() {
+		expunge();
+		results.clear();
+	}
+
+	/** Called while holding the lock */
+	private void expunge() {
+		Reference<?> ref;
+		while ((ref = queue.poll()) != null) {
+			Key key = ((Ref) ref).key;
+			// the key may already map to an entry computed again
+			Result entry = results.get(key);
+			if (entry != null && entry.key == key)
+				results.remove(key);
+		}
+	}
+}
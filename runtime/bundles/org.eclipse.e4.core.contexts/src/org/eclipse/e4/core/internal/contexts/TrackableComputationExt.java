@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2015 IBM Corporation and others.
+ * Copyright (c) 2009, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,6 +16,8 @@ package org.eclipse.e4.core.internal.contexts;
 import java.lang.ref.Reference;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import org.eclipse.e4.core.contexts.IEclipseContext;
 import org.eclipse.e4.core.contexts.RunAndTrack;
 import org.eclipse.e4.core.internal.contexts.EclipseContext.Scheduled;
@@ -27,9 +29,18 @@ public class TrackableComputationExt extends Computation {
 
 	private ContextChangeEvent cachedEvent;
 
+	/** Executor for updates declared by the runnable, <code>null</code> to update inline */
+	final private Executor executor;
+	/** Latest event waiting for execution on the {@link #executor} */
+	private ContextChangeEvent asyncEvent;
+	/** Whether a task draining {@link #asyncEvent} is submitted or running */
+	private boolean asyncScheduled;
+	private volatile boolean active = true;
+
 	public TrackableComputationExt(RunAndTrack runnable, IEclipseContext originatingContext) {
 		this.runnable = runnable;
 		this.originatingContext = originatingContext;
+		this.executor = (runnable instanceof RunAndTrackExt) ? null : runnable.getExecutor();
 		init();
 	}
 
@@ -75,6 +86,16 @@ public class TrackableComputationExt extends Computation {
 	public boolean update(ContextChangeEvent event) {
 		// is this a structural event?
 		// structural changes: INITIAL, DISPOSE, UNINJECTED are always processed right away
+		int eventType = event.getEventType();
+		if (executor != null && eventType != ContextChangeEvent.INITIAL && eventType != ContextChangeEvent.DISPOSE
+				&& eventType != ContextChangeEvent.UNINJECTED) {
+			scheduleAsync(event);
+			return true;
+		}
+		return updateNow(event);
+	}
+
+	private boolean updateNow(ContextChangeEvent event) {
 		int eventType = event.getEventType();
 		if ((runnable instanceof RunAndTrackExt) && ((RunAndTrackExt) runnable).batchProcess()) {
 			if ((eventType == ContextChangeEvent.ADDED) || (eventType == ContextChangeEvent.REMOVED)) {
@@ -111,16 +132,65 @@ public class TrackableComputationExt extends Computation {
 
 		if (eventType == ContextChangeEvent.DISPOSE) {
 			if (originatingContext.equals(eventsContext)) {
+				active = false;
 				((EclipseContext) originatingContext).removeRAT(this);
 				return false;
 			}
 		}
 		if (!result) {
+			active = false;
 			((EclipseContext) originatingContext).removeRAT(this);
 		}
 		return result;
 	}
 
+	/**
+	 * Queues the event for execution on the executor. Only the latest pending event
+	 * is kept: a plain {@link RunAndTrack} re-reads all of its inputs, so several
+	 * pending modifications collapse into a single execution.
+	 */
+	private void scheduleAsync(ContextChangeEvent event) {
+		synchronized (this) {
+			asyncEvent = event;
+			if (asyncScheduled)
+				return; // the running drain task will pick up the event
+			asyncScheduled = true;
+		}
+		try {
+			executor.execute(this::drainAsync);
+		} catch (RejectedExecutionException e) {
+			// executor shut down: fall back to the modifying thread
+			drainAsync();
+		}
+	}
+
+	private void drainAsync() {
+		try {
+			ContextChangeEvent event;
+			while ((event = nextAsyncEvent()) != null) {
+				if (active)
+					updateNow(event);
+			}
+		} catch (RuntimeException | Error e) {
+			ContextChangeEvent pending;
+			synchronized (this) {
+				asyncScheduled = false;
+				pending = asyncEvent;
+			}
+			if (pending != null)
+				scheduleAsync(pending);
+			throw e;
+		}
+	}
+
+	private synchronized ContextChangeEvent nextAsyncEvent() {
+		ContextChangeEvent event = asyncEvent;
+		asyncEvent = null;
+		if (event == null)
+			asyncScheduled = false;
+		return event;
+	}
+
 	@Override
 	public String toString() {
 		return runnable.toString();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2015 IBM Corporation and others.
+ * Copyright (c) 2009, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -27,6 +27,8 @@ public class ValueComputation extends Computation {
 	final private IContextFunction function;
 	final private EclipseContext originatingContext;
 	final private String name;
+	/** Keys the function result depends on, non-null if results can be shared */
+	final private String[] dependencies;
 
 	private Object cachedValue = NotAValue;
 	private volatile boolean computing; // cycle detection
@@ -36,6 +38,7 @@ public class ValueComputation extends Computation {
 		this.originatingContext = (EclipseContext) originatingContext;
 		this.function = computedValue;
 		this.name = name;
+		this.dependencies = computedValue.getResultDependencies();
 		init();
 	}
 
@@ -67,7 +70,18 @@ public class ValueComputation extends Computation {
 		originatingContext.pushComputation(this);
 		computing = true;
 		try {
-			Object computed = function.compute(originatingContext, name);
+			Object computed;
+			if (dependencies == null) {
+				computed = compute();
+			} else {
+				// reading the dependencies records them for this computation
+				Object[] values = new Object[dependencies.length];
+				for (int i = 0; i < dependencies.length; i++) {
+					values[i] = originatingContext.get(dependencies[i]);
+				}
+				computed = originatingContext.getSharedResults().get(function, name, values, originatingContext,
+						this::compute);
+			}
 			cacheComputedValue(computed);
 		} finally {
 			computing = false;
@@ -76,6 +90,12 @@ public class ValueComputation extends Computation {
 		return cachedValue;
 	}
 
+	private Object compute() {
+		if (ContextStatistics.isEnabled())
+			ContextStatistics.recordFunctionEvaluation(name);
+		return function.compute(originatingContext, name);
+	}
+
 	private synchronized void cacheComputedValue(Object computed) {
 		if (cachedValue == NotAValue) {
 			cachedValue = computed;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2012, 2015 IBM Corporation and others.
+ * Copyright (c) 2012, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,6 +16,7 @@ package org.eclipse.e4.core.internal.contexts;
 
 import java.lang.ref.WeakReference;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -59,9 +60,12 @@ public class WeakGroupedListenerList {
 		}
 	}
 
-	private Map<String, HashSet<WeakComputationReference>> listeners = new HashMap<>(10, 0.8f);
+	/** Created on first {@link #add(String, Computation)}: most contexts never get listeners */
+	private Map<String, HashSet<WeakComputationReference>> listeners = Collections.emptyMap();
 
 	synchronized public void add(String groupName, Computation computation) {
+		if (listeners.isEmpty())
+			listeners = new HashMap<>(10, 0.8f);
 		HashSet<WeakComputationReference> nameListeners = listeners.get(groupName);
 		if (nameListeners == null) {
 			nameListeners = new HashSet<>(30, 0.75f);
@@ -80,14 +84,11 @@ public class WeakGroupedListenerList {
 	}
 
 	synchronized public Set<String> getNames() {
-		Set<String> tmp = listeners.keySet(); // clone internal name list
-		Set<String> usedNames = new HashSet<>(tmp.size());
-		usedNames.addAll(tmp);
-		return usedNames;
+		return new HashSet<>(listeners.keySet()); // clone internal name list
 	}
 
 	synchronized public void clear() {
-		listeners.clear();
+		listeners = Collections.emptyMap();
 	}
 
 	synchronized public Set<Computation> getListeners() {
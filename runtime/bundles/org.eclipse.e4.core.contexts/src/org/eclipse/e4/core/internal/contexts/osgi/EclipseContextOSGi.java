@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2011, 2017 IBM Corporation and others.
+ * Copyright (c) 2011, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,9 +15,8 @@
 package org.eclipse.e4.core.internal.contexts.osgi;
 
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.eclipse.e4.core.contexts.IContextFunction;
 import org.eclipse.e4.core.internal.contexts.EclipseContext;
 import org.osgi.framework.BundleContext;
@@ -31,9 +30,31 @@ import org.osgi.framework.SynchronousBundleListener;
 
 public class EclipseContextOSGi extends EclipseContext implements ServiceListener, SynchronousBundleListener {
 
+	/**
+	 * A service resolved for a name, held until the service changes or the context
+	 * is disposed. {@link #NONE} records that no service is registered under the
+	 * name.
+	 */
+	private static final class ServiceEntry {
+		final ServiceReference<?> ref;
+		final Object service;
+
+		ServiceEntry(ServiceReference<?> ref, Object service) {
+			this.ref = ref;
+			this.service = service;
+		}
+	}
+
+	private static final ServiceEntry NONE = new ServiceEntry(null, null);
+
 	final private BundleContext bundleContext;
 
-	private Map<String, ServiceReference<?>> refs = Collections.synchronizedMap(new HashMap<String, ServiceReference<?>>());
+	/**
+	 * Services resolved so far, keyed by name. Updated from
+	 * {@link #serviceChanged(ServiceEvent)}, so repeated lookups of the same name
+	 * do not go to the service registry.
+	 */
+	private final Map<String, ServiceEntry> services = new ConcurrentHashMap<>();
 
 	public EclipseContextOSGi(BundleContext bundleContext) {
 		super(null);
@@ -46,8 +67,9 @@ public class EclipseContextOSGi extends EclipseContext implements ServiceListene
 				Arrays.sort(existing);
 				for (ServiceReference<?> element : existing) {
 					String name = (String) element.getProperty(IContextFunction.SERVICE_CONTEXT_KEY);
-					refs.put(name, element);
-					localValues.put(name, bundleContext.getService(element));
+					Object service = bundleContext.getService(element);
+					release(services.put(name, new ServiceEntry(element, service)));
+					localValues.put(name, service);
 				}
 			}
 		} catch (InvalidSyntaxException e) {
@@ -69,34 +91,46 @@ public class EclipseContextOSGi extends EclipseContext implements ServiceListene
 	public Object lookup(String name, EclipseContext originatingContext) {
 		if (name == null)
 			return null;
-		if (refs.containsKey(name)) { // retrieve service again
-			// This could be reached, for instance, if previously stored service value is overridden or removed from the context.
-			ServiceReference<?> ref = refs.get(name);
-			if (ref == null)
-				return null;
-			Object service = bundleContext.getService(ref);
-			bundleContext.ungetService(ref);
-			localValues.put(name, service);
-			return service;
+		// A cached entry is reached, for instance, if previously stored service value
+		// is overridden or removed from the context.
+		ServiceEntry entry = services.get(name);
+		if (entry == null) {
+			entry = resolve(name);
+			ServiceEntry existing = services.putIfAbsent(name, entry);
+			if (existing != null) { // resolved concurrently
+				release(entry);
+				entry = existing;
+			}
 		}
+		if (entry.service != null)
+			localValues.put(name, entry.service);
+		return entry.service;
+	}
+
+	/**
+	 * Retrieves the highest ranked service registered under the given name.
+	 */
+	private ServiceEntry resolve(String name) {
 		ServiceReference<?> ref = bundleContext.getServiceReference(name);
-		if (ref == null) {
-			refs.put(name, null);
-			return null;
-		}
-		refs.put(name, ref);
+		if (ref == null)
+			return NONE;
 		Object service = bundleContext.getService(ref);
-		localValues.put(name, service);
-		return service;
+		if (service == null) // unregistered in the meantime
+			return NONE;
+		return new ServiceEntry(ref, service);
+	}
+
+	private void release(ServiceEntry entry) {
+		if (entry != null && entry.ref != null)
+			bundleContext.ungetService(entry.ref);
 	}
 
 	@Override
 	public void dispose() {
-		for (ServiceReference<?> ref : refs.values()) {
-			if (ref != null)
-				bundleContext.ungetService(ref);
+		for (ServiceEntry entry : services.values()) {
+			release(entry);
 		}
-		refs.clear();
+		services.clear();
 		bundleContext.removeServiceListener(this);
 		bundleContext.removeBundleListener(this);
 		super.dispose();
@@ -111,21 +145,23 @@ public class EclipseContextOSGi extends EclipseContext implements ServiceListene
 				name = (String) ref.getProperty(IContextFunction.SERVICE_CONTEXT_KEY);
 			}
 
-			if (refs.containsKey(name)) {
+			ServiceEntry oldEntry = services.get(name);
+			if (oldEntry != null) {
 				// retrieve the highest ranked service of the same type
-				ref = bundleContext.getServiceReference(name);
-
-				ServiceReference<?> oldRef = refs.get(name);
-				if (oldRef != null && oldRef != ref) {
-					bundleContext.ungetService(oldRef);
+				ServiceEntry newEntry = resolve(name);
+				if (newEntry.ref != null && newEntry.ref.equals(oldEntry.ref)) {
+					release(newEntry); // still the same service
+					continue;
+				}
+				if (!services.replace(name, oldEntry, newEntry)) {
+					release(newEntry); // changed concurrently
+					continue;
 				}
+				release(oldEntry);
 
-				if (ref != null) {
-					Object service = bundleContext.getService(ref);
-					refs.put(name, ref);
-					set(name, service);
+				if (newEntry.service != null) {
+					set(name, newEntry.service);
 				} else {
-					refs.put(name, null);
 					remove(name);
 				}
 			}
@@ -0,0 +1,282 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.core.di.annotations.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates an injector class for every class that declares members annotated
+ * with <code>@Inject</code>, <code>@PostConstruct</code> or
+ * <code>@PreDestroy</code>. The generated class lets the injector set fields,
+ * call methods and create instances without reflection.
+ * <p>
+ * For a class with the binary name <code>p.Outer$Inner</code> the generated
+ * class is <code>p.Outer$Inner$$E4Injector</code>. It declares:
+ * </p>
+ * <ul>
+ * <li><code>public static final String[] MEMBERS</code>: the members it can
+ * access, as field names, <code>name(parameter types)</code> for methods and
+ * <code>&lt;init&gt;(parameter types)</code> for constructors, with parameter
+ * types given as {@link Class#getTypeName()} of their erasure;</li>
+ * <li><code>public static Object invoke(int member, Object target, Object[] args)</code>:
+ * accesses the member with the given index in <code>MEMBERS</code>.</li>
+ * </ul>
+ * Private and final members, and members of classes that are not accessible
+ * from their own package, are left out; the injector uses reflection for them.
+ */
+@SupportedAnnotationTypes({ "javax.inject.Inject", "javax.annotation.PostConstruct", "javax.annotation.PreDestroy" })
+public class InjectorProcessor extends AbstractProcessor {
+
+	/** Appended to the binary name of the injected class */
+	public static final String SUFFIX = "$$E4Injector"; //$NON-NLS-1$
+
+	private static final String INJECT = "javax.inject.Inject"; //$NON-NLS-1$
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		Set<TypeElement> types = new LinkedHashSet<>();
+		for (TypeElement annotation : annotations) {
+			for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+				Element enclosing = element.getEnclosingElement();
+				if (enclosing instanceof TypeElement)
+					types.add((TypeElement) enclosing);
+			}
+		}
+		for (TypeElement type : types) {
+			if (type.getKind() != ElementKind.CLASS || !isAccessible(type, processingEnv.getElementUtils().getPackageOf(type)))
+				continue;
+			try {
+				generate(type);
+			} catch (IOException e) {
+				processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to generate injector: " + e, type); //$NON-NLS-1$
+			}
+		}
+		return false; // the annotations are still available to other processors
+	}
+
+	private void generate(TypeElement type) throws IOException {
+		PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(type);
+		List<String> signatures = new ArrayList<>();
+		List<String> statements = new ArrayList<>();
+		String typeName = type.getQualifiedName().toString();
+		for (Element member : type.getEnclosedElements()) {
+			Set<Modifier> modifiers = member.getModifiers();
+			if (modifiers.contains(Modifier.PRIVATE))
+				continue;
+			boolean isStatic = modifiers.contains(Modifier.STATIC);
+			String target = isStatic ? typeName : "((" + typeName + ") target)"; //$NON-NLS-1$ //$NON-NLS-2$
+			if (member.getKind() == ElementKind.FIELD) {
+				if (modifiers.contains(Modifier.FINAL) || !hasAnnotation(member, INJECT))
+					continue;
+				TypeMirror fieldType = processingEnv.getTypeUtils().erasure(((VariableElement) member).asType());
+				if (!isAccessible(fieldType, packageElement))
+					continue;
+				signatures.add(member.getSimpleName().toString());
+				statements.add(target + '.' + member.getSimpleName() + " = " + cast(fieldType, 0) + ";\n\t\t\treturn null;"); //$NON-NLS-1$ //$NON-NLS-2$
+			} else if (member.getKind() == ElementKind.METHOD) {
+				if (!hasAnnotation(member, null))
+					continue;
+				ExecutableElement method = (ExecutableElement) member;
+				String arguments = arguments(method, packageElement);
+				if (arguments == null)
+					continue;
+				signatures.add(method.getSimpleName() + signature(method));
+				String call = target + '.' + method.getSimpleName() + '(' + arguments + ')';
+				if (method.getReturnType().getKind() == TypeKind.VOID)
+					statements.add(call + ";\n\t\t\treturn null;"); //$NON-NLS-1$
+				else
+					statements.add("return " + call + ';'); //$NON-NLS-1$
+			} else if (member.getKind() == ElementKind.CONSTRUCTOR) {
+				ExecutableElement constructor = (ExecutableElement) member;
+				// only constructors the injector can use: see InjectorImpl#internalMake()
+				if (modifiers.contains(Modifier.PROTECTED) || type.getModifiers().contains(Modifier.ABSTRACT))
+					continue;
+				if (type.getNestingKind() != NestingKind.TOP_LEVEL && !type.getModifiers().contains(Modifier.STATIC))
+					continue;
+				if (!constructor.getParameters().isEmpty() && !hasAnnotation(member, INJECT))
+					continue;
+				String arguments = arguments(constructor, packageElement);
+				if (arguments == null)
+					continue;
+				signatures.add("<init>" + signature(constructor)); //$NON-NLS-1$
+				statements.add("return new " + typeName + '(' + arguments + ");"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+		if (signatures.isEmpty())
+			return;
+
+		String packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString(); //$NON-NLS-1$
+		String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+		String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + SUFFIX;
+		JavaFileObject file = processingEnv.getFiler().createSourceFile(binaryName + SUFFIX, type);
+		try (PrintWriter out = new PrintWriter(file.openWriter())) {
+			if (!packageName.isEmpty())
+				out.println("package " + packageName + ';'); //$NON-NLS-1$
+			out.println();
+			out.println("/**"); //$NON-NLS-1$
+			out.println(" * Injector generated for {@link " + typeName + "}."); //$NON-NLS-1$ //$NON-NLS-2$
+			out.println(" */"); //$NON-NLS-1$
+			out.println("@javax.annotation.processing.Generated(\"" + getClass().getName() + "\")"); //$NON-NLS-1$ //$NON-NLS-2$
+			out.println("public final class " + simpleName + " {"); //$NON-NLS-1$ //$NON-NLS-2$
+			out.println();
+			out.print("\tpublic static final String[] MEMBERS = {"); //$NON-NLS-1$
+			for (int i = 0; i < signatures.size(); i++) {
+				out.print(i == 0 ? " \"" : ", \""); //$NON-NLS-1$ //$NON-NLS-2$
+				out.print(signatures.get(i));
+				out.print('"');
+			}
+			out.println(" };"); //$NON-NLS-1$
+			out.println();
+			out.println("\t@SuppressWarnings({ \"rawtypes\", \"unchecked\" })"); //$NON-NLS-1$
+			out.println("\tpublic static Object invoke(int member, Object target, Object[] args) throws Throwable {"); //$NON-NLS-1$
+			out.println("\t\tswitch (member) {"); //$NON-NLS-1$
+			for (int i = 0; i < statements.size(); i++) {
+				out.println("\t\tcase " + i + ':'); //$NON-NLS-1$
+				out.println("\t\t\t" + statements.get(i)); //$NON-NLS-1$
+			}
+			out.println("\t\tdefault:"); //$NON-NLS-1$
+			out.println("\t\t\tthrow new IllegalArgumentException(String.valueOf(member));"); //$NON-NLS-1$
+			out.println("\t\t}"); //$NON-NLS-1$
+			out.println("\t}"); //$NON-NLS-1$
+			out.println("}"); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * @param annotation qualified annotation name, or <code>null</code> for any
+	 *                   of the supported annotations
+	 */
+	private boolean hasAnnotation(Element element, String annotation) {
+		Set<String> names = annotation == null ? getSupportedAnnotationTypes() : Set.of(annotation);
+		for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+			TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+			if (names.contains(annotationType.getQualifiedName().toString()))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the argument list casting <code>args</code> to the parameter types,
+	 *         or <code>null</code> if a parameter type is not accessible
+	 */
+	private String arguments(ExecutableElement executable, PackageElement from) {
+		StringBuilder result = new StringBuilder();
+		List<? extends VariableElement> parameters = executable.getParameters();
+		for (int i = 0; i < parameters.size(); i++) {
+			TypeMirror parameterType = processingEnv.getTypeUtils().erasure(parameters.get(i).asType());
+			if (!isAccessible(parameterType, from))
+				return null;
+			if (i > 0)
+				result.append(", "); //$NON-NLS-1$
+			result.append(cast(parameterType, i));
+		}
+		return result.toString();
+	}
+
+	private String cast(TypeMirror type, int index) {
+		return "(" + sourceName(type) + ") args[" + index + ']'; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private String signature(ExecutableElement executable) {
+		StringBuilder result = new StringBuilder().append('(');
+		List<? extends VariableElement> parameters = executable.getParameters();
+		for (int i = 0; i < parameters.size(); i++) {
+			if (i > 0)
+				result.append(',');
+			result.append(runtimeName(processingEnv.getTypeUtils().erasure(parameters.get(i).asType())));
+		}
+		return result.append(')').toString();
+	}
+
+	/** @return the name used in source code, for example <code>p.Outer.Inner[]</code> */
+	private String sourceName(TypeMirror type) {
+		switch (type.getKind()) {
+		case ARRAY:
+			return sourceName(((ArrayType) type).getComponentType()) + "[]"; //$NON-NLS-1$
+		case DECLARED:
+			return ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+		default:
+			return type.getKind().name().toLowerCase();
+		}
+	}
+
+	/** @return the name returned by {@link Class#getTypeName()}, for example <code>p.Outer$Inner[]</code> */
+	private String runtimeName(TypeMirror type) {
+		switch (type.getKind()) {
+		case ARRAY:
+			return runtimeName(((ArrayType) type).getComponentType()) + "[]"; //$NON-NLS-1$
+		case DECLARED:
+			return processingEnv.getElementUtils().getBinaryName((TypeElement) ((DeclaredType) type).asElement()).toString();
+		default:
+			return type.getKind().name().toLowerCase();
+		}
+	}
+
+	private boolean isAccessible(TypeMirror type, PackageElement from) {
+		if (type.getKind() == TypeKind.ARRAY)
+			return isAccessible(((ArrayType) type).getComponentType(), from);
+		if (type.getKind() == TypeKind.DECLARED)
+			return isAccessible((TypeElement) ((DeclaredType) type).asElement(), from);
+		return type.getKind().isPrimitive();
+	}
+
+	/**
+	 * Checks that the type can be referenced from a top level class in the given
+	 * package.
+	 */
+	private boolean isAccessible(TypeElement type, PackageElement from) {
+		boolean samePackage = processingEnv.getElementUtils().getPackageOf(type).equals(from);
+		for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()) {
+			NestingKind nesting = ((TypeElement) element).getNestingKind();
+			if (nesting == NestingKind.LOCAL || nesting == NestingKind.ANONYMOUS)
+				return false;
+			Set<Modifier> modifiers = element.getModifiers();
+			if (modifiers.contains(Modifier.PRIVATE))
+				return false;
+			if (!samePackage && !modifiers.contains(Modifier.PUBLIC))
+				return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.core.di.annotations;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * This annotation indicates that the {@link javax.annotation.PreDestroy}
+ * methods of the class can be called on any thread and concurrently with those
+ * of other objects.
+ *
+ * When the object supplier of many injected objects is disposed, the injector
+ * calls the pre-destroy methods of objects of such classes on background
+ * threads, while the pre-destroy methods of all other objects are called one
+ * after another on the disposing thread. The disposal completes only after all
+ * pre-destroy methods have returned.
+ *
+ * The annotation has no effect when a single object is uninjected.
+ * @since 1.8
+ */
+@Documented
+@Target({TYPE})
+@Retention(RUNTIME)
+public @interface ConcurrentPreDestroy {
+	// intentionally left empty
+}
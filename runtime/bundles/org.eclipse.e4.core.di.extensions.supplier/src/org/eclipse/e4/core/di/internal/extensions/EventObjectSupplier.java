@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2017 IBM Corporation and others.
+ * Copyright (c) 2010, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -18,31 +18,35 @@ package org.eclipse.e4.core.di.internal.extensions;
 
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.Hashtable;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Objects;
 import javax.annotation.PreDestroy;
 import org.eclipse.e4.core.contexts.IEclipseContext;
 import org.eclipse.e4.core.di.IInjector;
 import org.eclipse.e4.core.di.InjectionException;
 import org.eclipse.e4.core.di.extensions.EventTopic;
+import org.eclipse.e4.core.di.internal.extensions.util.TopicTree;
 import org.eclipse.e4.core.di.suppliers.ExtendedObjectSupplier;
 import org.eclipse.e4.core.di.suppliers.IObjectDescriptor;
 import org.eclipse.e4.core.di.suppliers.IRequestor;
+import org.eclipse.e4.core.internal.di.Requestor;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.FrameworkUtil;
 import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventAdmin;
 import org.osgi.service.event.EventConstants;
 import org.osgi.service.event.EventHandler;
+import org.osgi.service.log.Logger;
+import org.osgi.service.log.LoggerFactory;
 
 /**
  * This class is instantiated and wired by declarative services.
@@ -66,8 +70,63 @@ public class EventObjectSupplier extends ExtendedObjectSupplier implements Event
 		this.eventAdmin = eventAdmin;
 	}
 
+	LoggerFactory factory;
+	Logger logger;
+
+	@Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC)
+	void setLogger(LoggerFactory factory) {
+		this.factory = factory;
+		this.logger = factory.getLogger(getClass());
+	}
+
+	void unsetLogger(LoggerFactory loggerFactory) {
+		if (this.factory == loggerFactory) {
+			this.factory = null;
+			this.logger = null;
+		}
+	}
+
+	/**
+	 * Method to log an exception.
+	 *
+	 * @param message The log message.
+	 * @param e       The exception that should be logged.
+	 */
+	void logError(String message, Throwable e) {
+		Logger log = this.logger;
+		if (log != null) {
+			log.error(message, e);
+		} else {
+			// fallback if no LogService is available
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * @deprecated no longer used, the events being delivered are kept per thread,
+	 *             see {@link #addCurrentEvent(String, Event)}
+	 */
+	@Deprecated
 	protected Map<String, Event> currentEvents = new HashMap<>();
 
+	/**
+	 * An event being delivered on the current thread. Deliveries nest when a
+	 * subscriber sends another event synchronously.
+	 */
+	private static final class Delivery {
+		final String topic;
+		final Event event;
+		final Delivery enclosing;
+
+		Delivery(String topic, Event event, Delivery enclosing) {
+			this.topic = topic;
+			this.event = event;
+			this.enclosing = enclosing;
+		}
+	}
+
+	private final ThreadLocal<Delivery> deliveries = new ThreadLocal<>();
+
 	class DIEventHandler implements EventHandler {
 
 		final private IRequestor requestor;
@@ -85,63 +144,114 @@ public class EventObjectSupplier extends ExtendedObjectSupplier implements Event
 				return;
 			}
 
+			// the arguments are kept per delivery, so concurrent deliveries to the
+			// same requestor do not interfere
+			Requestor<?> internalRequestor = (Requestor<?>) requestor;
+			Object[] args;
 			addCurrentEvent(topic, event);
-			requestor.resolveArguments(false);
-			removeCurrentEvent(topic);
+			try {
+				args = internalRequestor.resolveDelivery();
+			} finally {
+				removeCurrentEvent(topic);
+			}
 
-			requestor.execute();
+			internalRequestor.execute(args);
 		}
 	}
 
-	// A combo of { IRequestor + topic } used in Map lookups
+	// A combo of { IRequestor + topic } and the handler delivering its events
 	static private class Subscriber {
-		private IRequestor requestor;
-		private String topic;
+		final IRequestor requestor;
+		final String topic;
+		final EventHandler handler;
 
-		public Subscriber(IRequestor requestor, String topic) {
-			super();
+		public Subscriber(IRequestor requestor, String topic, EventHandler handler) {
 			this.requestor = requestor;
 			this.topic = topic;
+			this.handler = handler;
 		}
+	}
 
-		@Override
-		public int hashCode() {
-			final int prime = 31;
-			int result = 1;
-			result = prime * result + Objects.hashCode(requestor);
-			return prime * result + Objects.hashCode(topic);
-		}
-
-		public IRequestor getRequestor() {
-			return requestor;
+	/**
+	 * The event handler service receiving the events of a topic root and passing
+	 * them on to the matching subscribers. The root is the parent of a topic
+	 * followed by a wildcard, or the topic itself if it ends with a wildcard, see
+	 * {@link #getRoot(String)}. Sibling topics share a root, so a root is
+	 * registered once, with a fixed topic, for all of them.
+	 */
+	private class TopicDispatcher implements EventHandler {
+		final String root;
+		/** the subscribers of topics with this root; guarded by subscriptions */
+		final TopicTree<Subscriber> topicTree = new TopicTree<>();
+		/** guarded by registrationLock */
+		ServiceRegistration<EventHandler> registration;
+
+		TopicDispatcher(String root) {
+			this.root = root;
 		}
 
 		@Override
-		public boolean equals(Object obj) {
-			if (this == obj)
-				return true;
-			if (obj == null)
-				return false;
-			if (getClass() != obj.getClass())
-				return false;
-			Subscriber other = (Subscriber) obj;
-			return Objects.equals(this.requestor, other.requestor) && Objects.equals(this.topic, other.topic);
+		public void handleEvent(Event event) {
+			List<Subscriber> matching;
+			synchronized (subscriptions) {
+				matching = topicTree.match(event.getTopic());
+			}
+			for (Subscriber subscriber : matching) {
+				try {
+					subscriber.handler.handleEvent(event);
+				} catch (RuntimeException e) {
+					// deliver to the other subscribers anyway
+					logError("Failed to deliver event " + event.getTopic() + " to " + subscriber.requestor, e); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+			}
 		}
-
 	}
 
-	private Map<Subscriber, ServiceRegistration<EventHandler>> registrations = new HashMap<>();
+	/** requestor -> topic -> subscriber; guarded by itself together with dispatchers */
+	private final Map<IRequestor, Map<String, Subscriber>> subscriptions = new HashMap<>();
+	/** topic root -> dispatcher; guarded by subscriptions */
+	private final Map<String, TopicDispatcher> dispatchers = new HashMap<>();
+
+	/** guards the registration of the dispatchers; acquired before subscriptions */
+	private final Object registrationLock = new Object();
 
+	/**
+	 * Makes the event available to the arguments of the given topic resolved on
+	 * the current thread until {@link #removeCurrentEvent(String)} is called.
+	 * Concurrent deliveries on other threads do not see it.
+	 */
 	protected void addCurrentEvent(String topic, Event event) {
-		synchronized (currentEvents) {
-			currentEvents.put(topic, event);
-		}
+		deliveries.set(new Delivery(topic, event, deliveries.get()));
 	}
 
 	protected void removeCurrentEvent(String topic) {
-		synchronized (currentEvents) {
-			currentEvents.remove(topic);
+		Delivery delivery = without(deliveries.get(), topic);
+		if (delivery == null)
+			deliveries.remove();
+		else
+			deliveries.set(delivery);
+	}
+
+	/**
+	 * @return the deliveries without the innermost one of the topic
+	 */
+	private static Delivery without(Delivery delivery, String topic) {
+		if (delivery == null)
+			return null;
+		if (delivery.topic.equals(topic))
+			return delivery.enclosing;
+		Delivery enclosing = without(delivery.enclosing, topic);
+		if (enclosing == delivery.enclosing)
+			return delivery;
+		return new Delivery(delivery.topic, delivery.event, enclosing);
+	}
+
+	private Event getCurrentEvent(String topic) {
+		for (Delivery delivery = deliveries.get(); delivery != null; delivery = delivery.enclosing) {
+			if (delivery.topic.equals(topic))
+				return delivery.event;
 		}
+		return null;
 	}
 
 	@Override
@@ -157,21 +267,22 @@ public class EventObjectSupplier extends ExtendedObjectSupplier implements Event
 		else
 			unsubscribe(requestor);
 
-		if (!currentEvents.containsKey(topic))
+		Event event = getCurrentEvent(topic);
+		if (event == null)
 			return IInjector.NOT_A_VALUE;
 
 		// convert to fit destination
 		Class<?> descriptorsClass = getDesiredClass(descriptor.getDesiredType());
 		if (descriptorsClass.equals(Event.class))
-			return currentEvents.get(topic);
+			return event;
 
-		return currentEvents.get(topic).getProperty(DATA);
+		return event.getProperty(DATA);
 	}
 
 	private void subscribe(String topic, IRequestor requestor) {
-		Subscriber subscriber = new Subscriber(requestor, topic);
-		synchronized (registrations) {
-			if (registrations.containsKey(subscriber))
+		synchronized (subscriptions) {
+			Map<String, Subscriber> topics = subscriptions.get(requestor);
+			if (topics != null && topics.containsKey(topic))
 				return;
 		}
 		BundleContext bundleContext = FrameworkUtil.getBundle(EventObjectSupplier.class).getBundleContext();
@@ -179,16 +290,66 @@ public class EventObjectSupplier extends ExtendedObjectSupplier implements Event
 			throw new InjectionException(
 					"Unable to subscribe to events: org.eclipse.e4.core.di.extensions bundle is not activated"); //$NON-NLS-1$
 
-		String[] topics = new String[] { topic };
-		Dictionary<String, Object> d = new Hashtable<>();
-		d.put(EventConstants.EVENT_TOPIC, topics);
-		EventHandler wrappedHandler = makeHandler(topic, requestor);
-		ServiceRegistration<EventHandler> registration = bundleContext.registerService(EventHandler.class,
-				wrappedHandler, d);
-		// due to the way requestors are constructed this limited synch should
-		// be OK
-		synchronized (registrations) {
-			registrations.put(subscriber, registration);
+		Subscriber subscriber = new Subscriber(requestor, topic, makeHandler(topic, requestor));
+		TopicDispatcher dispatcher;
+		synchronized (subscriptions) {
+			Map<String, Subscriber> topics = subscriptions.computeIfAbsent(requestor, r -> new HashMap<>(2));
+			if (topics.putIfAbsent(topic, subscriber) != null)
+				return;
+			dispatcher = dispatchers.computeIfAbsent(getRoot(topic), TopicDispatcher::new);
+			if (!dispatcher.topicTree.add(topic, subscriber))
+				return; // the dispatcher receives the topic already
+		}
+		// returns quickly unless this is the first topic of the root
+		updateRegistration(dispatcher, bundleContext);
+	}
+
+	/**
+	 * @return the topic of the dispatcher receiving the events of the given topic
+	 */
+	static String getRoot(String topic) {
+		if (topic.equals("*") || topic.endsWith("/*")) //$NON-NLS-1$ //$NON-NLS-2$
+			return topic;
+		int index = topic.lastIndexOf('/');
+		return index == -1 ? topic : topic.substring(0, index + 1) + '*';
+	}
+
+	/**
+	 * Registers or unregisters the dispatcher depending on whether its root has
+	 * subscribers. The topic of a registered dispatcher never changes.
+	 */
+	private void updateRegistration(TopicDispatcher dispatcher, BundleContext bundleContext) {
+		synchronized (registrationLock) {
+			boolean used;
+			synchronized (subscriptions) {
+				used = !dispatcher.topicTree.isEmpty();
+				if (!used)
+					dispatchers.remove(dispatcher.root, dispatcher);
+			}
+			if (!used) {
+				if (dispatcher.registration != null) {
+					unregister(dispatcher.registration);
+					dispatcher.registration = null;
+				}
+				return;
+			}
+			if (dispatcher.registration != null)
+				return;
+			if (bundleContext == null)
+				bundleContext = FrameworkUtil.getBundle(EventObjectSupplier.class).getBundleContext();
+			if (bundleContext == null)
+				return;
+			Dictionary<String, Object> d = new Hashtable<>();
+			d.put(EventConstants.EVENT_TOPIC, dispatcher.root);
+			dispatcher.registration = bundleContext.registerService(EventHandler.class, dispatcher, d);
+		}
+	}
+
+	private static void unregister(ServiceRegistration<?> serviceRegistration) {
+		try {
+			serviceRegistration.unregister();
+		} catch (IllegalStateException e) {
+			// already unregistered
 		}
 	}
 
@@ -206,31 +367,38 @@ public class EventObjectSupplier extends ExtendedObjectSupplier implements Event
 	protected void unsubscribe(IRequestor requestor) {
 		if (requestor == null)
 			return;
-		synchronized (registrations) {
-			Iterator<Entry<Subscriber, ServiceRegistration<EventHandler>>> i = registrations.entrySet().iterator();
-			while (i.hasNext()) {
-				Entry<Subscriber, ServiceRegistration<EventHandler>> entry = i.next();
-				Subscriber key = entry.getKey();
-				if (!requestor.equals(key.getRequestor()))
-					continue;
-				ServiceRegistration<EventHandler> registration = entry.getValue();
-				registration.unregister();
-				i.remove();
+		List<TopicDispatcher> unused = new ArrayList<>();
+		synchronized (subscriptions) {
+			Map<String, Subscriber> topics = subscriptions.remove(requestor);
+			if (topics == null)
+				return;
+			for (Subscriber subscriber : topics.values()) {
+				TopicDispatcher dispatcher = dispatchers.get(getRoot(subscriber.topic));
+				if (dispatcher != null && dispatcher.topicTree.remove(subscriber.topic, subscriber)
+						&& dispatcher.topicTree.isEmpty())
+					unused.add(dispatcher);
 			}
 		}
+		for (TopicDispatcher dispatcher : unused) {
+			updateRegistration(dispatcher, null);
+		}
 	}
 
-	@SuppressWarnings("rawtypes")
 	@PreDestroy
 	public void dispose() {
-		ServiceRegistration[] array;
-		synchronized (registrations) {
-			Collection<ServiceRegistration<EventHandler>> values = registrations.values();
-			array = values.toArray(new ServiceRegistration[values.size()]);
-			registrations.clear();
-		}
-		for (ServiceRegistration element : array) {
-			element.unregister();
+		synchronized (registrationLock) {
+			List<TopicDispatcher> registered;
+			synchronized (subscriptions) {
+				registered = new ArrayList<>(dispatchers.values());
+				subscriptions.clear();
+				dispatchers.clear();
+			}
+			for (TopicDispatcher dispatcher : registered) {
+				if (dispatcher.registration != null) {
+					unregister(dispatcher.registration);
+					dispatcher.registration = null;
+				}
+			}
 		}
 	}
 
@@ -247,18 +415,16 @@ public class EventObjectSupplier extends ExtendedObjectSupplier implements Event
 
 	@Override
 	public void handleEvent(Event event) {
-		synchronized (registrations) {
-			Iterator<Entry<Subscriber, ServiceRegistration<EventHandler>>> i = registrations.entrySet().iterator();
-			while (i.hasNext()) {
-				Entry<Subscriber, ServiceRegistration<EventHandler>> entry = i.next();
-				Subscriber key = entry.getKey();
-				if (!key.getRequestor().isValid()) {
-					ServiceRegistration<EventHandler> registration = entry.getValue();
-					registration.unregister();
-					i.remove();
-				}
+		List<IRequestor> invalid = new ArrayList<>();
+		synchronized (subscriptions) {
+			for (IRequestor requestor : subscriptions.keySet()) {
+				if (!requestor.isValid())
+					invalid.add(requestor);
 			}
 		}
+		for (IRequestor requestor : invalid) {
+			unsubscribe(requestor);
+		}
 	}
 
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2017 IBM Corporation and others.
+ * Copyright (c) 2010, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -18,13 +18,16 @@ package org.eclipse.e4.core.di.internal.extensions;
 
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.eclipse.core.runtime.preferences.ConfigurationScope;
+import org.eclipse.core.runtime.preferences.DefaultScope;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.INodeChangeListener;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences.IPreferenceChangeListener;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.NodeChangeEvent;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences.PreferenceChangeEvent;
 import org.eclipse.core.runtime.preferences.IPreferencesService;
 import org.eclipse.core.runtime.preferences.InstanceScope;
@@ -35,6 +38,8 @@ import org.eclipse.e4.core.di.suppliers.ExtendedObjectSupplier;
 import org.eclipse.e4.core.di.suppliers.IObjectDescriptor;
 import org.eclipse.e4.core.di.suppliers.IRequestor;
 import org.osgi.framework.FrameworkUtil;
+import org.osgi.service.prefs.BackingStoreException;
+import org.osgi.service.prefs.Preferences;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
@@ -61,44 +66,161 @@ public class PreferencesObjectSupplier extends ExtendedObjectSupplier implements
 		this.preferencesService = preferenceService;
 	}
 
-	static private class PrefInjectionListener implements IPreferenceChangeListener {
+	/** cached for preferences without a value */
+	private static final Object NO_VALUE = new Object();
 
-		final private IRequestor requestor;
+	/**
+	 * The single listener of a preference node, passing changes on to the
+	 * requestors injected with the changed key. It also caches the values read
+	 * for the node, converted to the injected types. A change of the node, or of
+	 * the node with the same path in the configuration or default scope,
+	 * discards the cached values of the key before the requestors are updated.
+	 * <p>
+	 * The listener is bound to the node instances existing when it is created.
+	 * If one of them is removed, the listener drops itself from the cache along
+	 * with its values, so that the node created again gets a new listener.
+	 * </p>
+	 */
+	static private class NodeListener implements IPreferenceChangeListener, INodeChangeListener {
+
+		final private String nodePath;
+		final private Map<String, NodeListener> owner;
 		final private IEclipsePreferences node;
-		final private String key;
+		final private IEclipsePreferences[] otherScopeNodes;
+		final private Preferences[] parents;
+		// key -> requestors
+		final private Map<String, Set<IRequestor>> requestors = new ConcurrentHashMap<>();
+		// key -> (value type -> value)
+		final private Map<String, Map<Class<?>, Object>> values = new ConcurrentHashMap<>();
+
+		final private IPreferenceChangeListener invalidator = event -> values.remove(event.getKey());
 
-		public PrefInjectionListener(IEclipsePreferences node, String key, IRequestor requestor) {
-			this.node = node;
-			this.key = key;
-			this.requestor = requestor;
+		public NodeListener(String nodePath, Map<String, NodeListener> owner) {
+			this.nodePath = nodePath;
+			this.owner = owner;
+			this.node = InstanceScope.INSTANCE.getNode(nodePath);
+			this.otherScopeNodes = new IEclipsePreferences[] { ConfigurationScope.INSTANCE.getNode(nodePath),
+					DefaultScope.INSTANCE.getNode(nodePath) };
+			this.parents = new Preferences[] { node.parent(), otherScopeNodes[0].parent(),
+					otherScopeNodes[1].parent() };
+			node.addPreferenceChangeListener(this);
+			for (IEclipsePreferences otherNode : otherScopeNodes) {
+				otherNode.addPreferenceChangeListener(invalidator);
+			}
+			for (Preferences parent : parents) {
+				if (parent instanceof IEclipsePreferences)
+					((IEclipsePreferences) parent).addNodeChangeListener(this);
+			}
 		}
 
 		@Override
-		public void preferenceChange(final PreferenceChangeEvent event) {
-			if (!requestor.isValid()) {
-				node.removePreferenceChangeListener(this);
+		public void added(NodeChangeEvent event) {
+			// only the removal of the nodes is of interest
+		}
+
+		@Override
+		public void removed(NodeChangeEvent event) {
+			Preferences child = event.getChild();
+			if (child != node && child != otherScopeNodes[0] && child != otherScopeNodes[1])
 				return;
-			}
+			values.clear();
+			if (owner.remove(nodePath, this))
+				stopListening();
+		}
 
-			if (!event.getKey().equals(key)) {
+		@Override
+		public void preferenceChange(final PreferenceChangeEvent event) {
+			values.remove(event.getKey());
+			Set<IRequestor> listening = requestors.get(event.getKey());
+			if (listening == null)
 				return;
+			RuntimeException failure = null;
+			for (Iterator<IRequestor> i = listening.iterator(); i.hasNext();) {
+				IRequestor requestor = i.next();
+				if (!requestor.isValid()) {
+					i.remove();
+					continue;
+				}
+				try {
+					requestor.resolveArguments(false);
+					requestor.execute();
+				} catch (RuntimeException e) {
+					// update the other requestors first, the node logs the failure
+					if (failure == null)
+						failure = e;
+				}
 			}
+			if (failure != null)
+				throw failure;
+		}
+
+		void addRequestor(String key, IRequestor requestor) {
+			requestors.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(requestor);
+		}
 
-			requestor.resolveArguments(false);
-			requestor.execute();
+		/**
+		 * Returns the value of the key converted to the given type, reading it
+		 * from the preferences service if it is not cached.
+		 */
+		Object getValue(String key, Class<?> valueType, IPreferencesService service) {
+			// a change discards the map of the key, so a value read before the
+			// change can only end up in a map that is no longer used
+			Map<Class<?>, Object> typedValues = values.computeIfAbsent(key, k -> new ConcurrentHashMap<>(2));
+			Object value = typedValues.get(valueType);
+			if (value == null) {
+				value = readValue(nodePath, key, valueType, service);
+				typedValues.put(valueType, value == null ? NO_VALUE : value);
+			}
+			return value == NO_VALUE ? null : value;
 		}
 
-		public IRequestor getRequestor() {
-			return requestor;
+		/**
+		 * @return <code>true</code> if no requestors are left
+		 */
+		boolean removeInvalidRequestors() {
+			for (Iterator<Set<IRequestor>> i = requestors.values().iterator(); i.hasNext();) {
+				Set<IRequestor> listening = i.next();
+				listening.removeIf(requestor -> !requestor.isValid());
+				if (listening.isEmpty())
+					i.remove();
+			}
+			return requestors.isEmpty();
 		}
 
 		public void stopListening() {
-			node.removePreferenceChangeListener(this);
+			// a removed node does not accept calls anymore, its listeners are
+			// gone with it
+			if (exists(node))
+				node.removePreferenceChangeListener(this);
+			for (IEclipsePreferences otherNode : otherScopeNodes) {
+				if (exists(otherNode))
+					otherNode.removePreferenceChangeListener(invalidator);
+			}
+			for (Preferences parent : parents) {
+				if (parent instanceof IEclipsePreferences && exists(parent))
+					((IEclipsePreferences) parent).removeNodeChangeListener(this);
+			}
+		}
+
+		private static boolean exists(Preferences node) {
+			try {
+				return node.nodeExists("");
+			} catch (BackingStoreException e) {
+				return false;
+			}
 		}
 	}
 
-	// Hash (nodePath -> Hash (key -> list))
-	private Map<String, HashMap<String, List<PrefInjectionListener>>> listenerCache = new HashMap<>();
+	// nodePath -> listener
+	private Map<String, NodeListener> listenerCache = new ConcurrentHashMap<>();
+
+	// requesting class -> symbolic name of its bundle, the default node path
+	private static final ClassValue<String> bundleNames = new ClassValue<>() {
+		@Override
+		protected String computeValue(Class<?> type) {
+			return FrameworkUtil.getBundle(type).getSymbolicName();
+		}
+	};
 
 	@Override
 	public Object get(IObjectDescriptor descriptor, IRequestor requestor, boolean track, boolean group) {
@@ -113,36 +235,49 @@ public class PreferencesObjectSupplier extends ExtendedObjectSupplier implements
 		String key = getKey(descriptor);
 		if (key == null || nodePath == null || key.isEmpty() || nodePath.isEmpty())
 			return IInjector.NOT_A_VALUE;
-		if (track)
-			addListener(nodePath, key, requestor);
-
-		if (descriptorsClass.isPrimitive()) {
-			if (descriptorsClass.equals(boolean.class))
-				return getPreferencesService().getBoolean(nodePath, key, false, null);
-			else if (descriptorsClass.equals(int.class))
-				return getPreferencesService().getInt(nodePath, key, 0, null);
-			else if (descriptorsClass.equals(double.class))
-				return getPreferencesService().getDouble(nodePath, key, 0.0d, null);
-			else if (descriptorsClass.equals(float.class))
-				return getPreferencesService().getFloat(nodePath, key, 0.0f, null);
-			else if (descriptorsClass.equals(long.class))
-				return getPreferencesService().getLong(nodePath, key, 0L, null);
-		}
+		NodeListener listener;
+		if (track && requestor != null)
+			listener = addListener(nodePath, key, requestor);
+		else
+			// a one-off read uses the values cached for tracked requestors but
+			// does not start listening itself
+			listener = listenerCache.get(nodePath);
 
-		if (String.class.equals(descriptorsClass))
-			return getPreferencesService().getString(nodePath, key, null, null);
-		else if (Boolean.class.equals(descriptorsClass))
-			return getPreferencesService().getBoolean(nodePath, key, false, null);
-		else if (Integer.class.equals(descriptorsClass))
-			return getPreferencesService().getInt(nodePath, key, 0, null);
-		else if (Double.class.equals(descriptorsClass))
-			return getPreferencesService().getDouble(nodePath, key, 0.0d, null);
-		else if (Float.class.equals(descriptorsClass))
-			return getPreferencesService().getFloat(nodePath, key, 0.0f, null);
-		else if (Long.class.equals(descriptorsClass))
-			return getPreferencesService().getLong(nodePath, key, 0L, null);
-
-		return getPreferencesService().getString(nodePath, key, null, null);
+		Class<?> valueType = getValueType(descriptorsClass);
+		if (listener == null)
+			return readValue(nodePath, key, valueType, getPreferencesService());
+		return listener.getValue(key, valueType, getPreferencesService());
+	}
+
+	static Object readValue(String nodePath, String key, Class<?> valueType, IPreferencesService service) {
+		if (Boolean.class.equals(valueType))
+			return service.getBoolean(nodePath, key, false, null);
+		else if (Integer.class.equals(valueType))
+			return service.getInt(nodePath, key, 0, null);
+		else if (Double.class.equals(valueType))
+			return service.getDouble(nodePath, key, 0.0d, null);
+		else if (Float.class.equals(valueType))
+			return service.getFloat(nodePath, key, 0.0f, null);
+		else if (Long.class.equals(valueType))
+			return service.getLong(nodePath, key, 0L, null);
+		return service.getString(nodePath, key, null, null);
+	}
+
+	/**
+	 * @return the type values of the given class are read as
+	 */
+	private Class<?> getValueType(Class<?> descriptorsClass) {
+		if (boolean.class.equals(descriptorsClass) || Boolean.class.equals(descriptorsClass))
+			return Boolean.class;
+		else if (int.class.equals(descriptorsClass) || Integer.class.equals(descriptorsClass))
+			return Integer.class;
+		else if (double.class.equals(descriptorsClass) || Double.class.equals(descriptorsClass))
+			return Double.class;
+		else if (float.class.equals(descriptorsClass) || Float.class.equals(descriptorsClass))
+			return Float.class;
+		else if (long.class.equals(descriptorsClass) || Long.class.equals(descriptorsClass))
+			return Long.class;
+		return String.class;
 	}
 
 	private Class<?> getDesiredClass(Type desiredType) {
@@ -172,90 +307,39 @@ public class PreferencesObjectSupplier extends ExtendedObjectSupplier implements
 		if (nodePath == null || nodePath.isEmpty()) {
 			if (requestingObject == null)
 				return null;
-			nodePath = FrameworkUtil.getBundle(requestingObject).getSymbolicName();
+			nodePath = bundleNames.get(requestingObject);
 		}
 		return nodePath;
 	}
 
-	private void addListener(String nodePath, String key, final IRequestor requestor) {
-		if (requestor == null)
-			return;
-		synchronized (listenerCache) {
-			if (listenerCache.containsKey(nodePath)) {
-				HashMap<String, List<PrefInjectionListener>> map = listenerCache.get(nodePath);
-				if (map.containsKey(key)) {
-					for (PrefInjectionListener listener : map.get(key)) {
-						IRequestor previousRequestor = listener.getRequestor();
-						if (previousRequestor.equals(requestor))
-							return; // avoid adding duplicate listeners
-					}
-				}
-			}
-		}
-		final IEclipsePreferences node = InstanceScope.INSTANCE.getNode(nodePath);
-		PrefInjectionListener listener = new PrefInjectionListener(node, key, requestor);
-		node.addPreferenceChangeListener(listener);
-
-		synchronized (listenerCache) {
-			HashMap<String, List<PrefInjectionListener>> map = listenerCache.get(nodePath);
-			if (map == null) {
-				map = new HashMap<>();
-				listenerCache.put(nodePath, map);
-			}
-			List<PrefInjectionListener> listeningRequestors = map.get(key);
-			if (listeningRequestors == null) {
-				listeningRequestors = new ArrayList<>();
-				map.put(key, listeningRequestors);
-			}
-			listeningRequestors.add(listener);
-		}
+	private NodeListener addListener(String nodePath, String key, final IRequestor requestor) {
+		// adding under the map entry lock so that a concurrent cleanup cannot
+		// drop the listener in between
+		return listenerCache.compute(nodePath, (path, listener) -> {
+			if (listener == null)
+				listener = new NodeListener(path, listenerCache);
+			listener.addRequestor(key, requestor);
+			return listener;
+		});
 	}
 
 	@Deactivate
 	public void removeAllListeners() {
-		synchronized (listenerCache) {
-			for (HashMap<String, List<PrefInjectionListener>> map : listenerCache.values()) {
-				for (List<PrefInjectionListener> listeners : map.values()) {
-					if (listeners == null)
-						continue;
-					for (PrefInjectionListener listener : listeners) {
-						listener.stopListening();
-					}
-				}
-			}
-			listenerCache.clear();
+		for (Iterator<NodeListener> i = listenerCache.values().iterator(); i.hasNext();) {
+			i.next().stopListening();
+			i.remove();
 		}
 	}
 
 	@Override
 	public void handleEvent(Event event) {
-		synchronized (listenerCache) {
-			for (Iterator<Map.Entry<String, HashMap<String, List<PrefInjectionListener>>>> nodesIterator = listenerCache
-					.entrySet().iterator(); nodesIterator.hasNext();) {
-				HashMap<String, List<PrefInjectionListener>> map = nodesIterator.next().getValue();
-				for (Iterator<HashMap.Entry<String, List<PrefInjectionListener>>> valuesIterator = map.entrySet()
-						.iterator(); valuesIterator.hasNext();) {
-					List<PrefInjectionListener> listeners = valuesIterator.next().getValue();
-					if (listeners != null) {
-						for (Iterator<PrefInjectionListener> listenerIterator = listeners.iterator(); listenerIterator
-								.hasNext();) {
-							PrefInjectionListener listener = listenerIterator.next();
-							if (!listener.getRequestor().isValid()) {
-								listener.stopListening();
-								listenerIterator.remove();
-							}
-						}
-
-						if (listeners.isEmpty()) {
-							valuesIterator.remove();
-						}
-					}
-				}
-
-				if (map.isEmpty()) {
-					nodesIterator.remove();
-				}
-			}
+		for (String nodePath : listenerCache.keySet()) {
+			listenerCache.computeIfPresent(nodePath, (path, listener) -> {
+				if (!listener.removeInvalidRequestors())
+					return listener;
+				listener.stopListening();
+				return null;
+			});
 		}
 	}
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2014, 2018 BestSolution.at and others.
+ * Copyright (c) 2014, 2022 BestSolution.at and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -18,21 +18,23 @@ package org.eclipse.e4.core.di.internal.extensions;
 import java.lang.Thread.UncaughtExceptionHandler;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Optional;
+import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.function.BooleanSupplier;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import org.eclipse.e4.core.contexts.IEclipseContext;
 import org.eclipse.e4.core.di.IInjector;
 import org.eclipse.e4.core.di.extensions.Service;
@@ -45,6 +47,7 @@ import org.osgi.framework.BundleEvent;
 import org.osgi.framework.Filter;
 import org.osgi.framework.FrameworkUtil;
 import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.ServiceEvent;
 import org.osgi.framework.ServiceReference;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
@@ -62,17 +65,88 @@ import org.osgi.util.tracker.ServiceTracker;
 
 /**
  * Supplier for {@link Service}
+ * <p>
+ * Changes of the tracked services are collected per service type for a short
+ * time, see {@link #REFRESH_DELAY}, and the requestors are refreshed once for
+ * all of them. Only requestors whose filter matches one of the changed services
+ * are refreshed.
+ * </p>
  */
 @Component(service = { ExtendedObjectSupplier.class, EventHandler.class }, property = {
 		"dependency.injection.annotation=org.eclipse.e4.core.di.extensions.Service",
 		"event.topics=" + IEclipseContext.TOPIC_DISPOSE })
 public class ServiceSupplier extends ExtendedObjectSupplier implements EventHandler {
 
+	/**
+	 * Time in milliseconds to wait for further service changes before the
+	 * requestors are refreshed.
+	 */
+	static final long REFRESH_DELAY = Long.getLong("org.eclipse.e4.core.di.extensions.serviceRefreshDelay", 20); //$NON-NLS-1$
+
+	/**
+	 * Maximum number of times a refresh is postponed because the tracker did not
+	 * yet record a changed service.
+	 */
+	static final int MAX_POSTPONE = 10;
+
+	private static final Executor REFRESH_EXECUTOR = CompletableFuture.delayedExecutor(REFRESH_DELAY,
+			TimeUnit.MILLISECONDS);
+
 	LoggerFactory factory;
 	Logger logger;
 
 	private volatile BundleTracker<ServiceSupplierContext> supplierContextTracker;
 
+	private final RefreshStatistics statistics = new RefreshStatistics();
+
+	private final AtomicBoolean cleanupScheduled = new AtomicBoolean();
+
+	/**
+	 * Counters of the refreshes caused by service changes.
+	 */
+	public static final class RefreshStatistics {
+		final LongAdder changes = new LongAdder();
+		final LongAdder coalescedChanges = new LongAdder();
+		final LongAdder refreshes = new LongAdder();
+		final LongAdder skippedRefreshes = new LongAdder();
+
+		/**
+		 * @return number of service changes that affected tracked requestors
+		 */
+		public long getChanges() {
+			return changes.sum();
+		}
+
+		/**
+		 * @return number of service changes that were added to an already pending
+		 *         refresh instead of causing a refresh of their own
+		 */
+		public long getCoalescedChanges() {
+			return coalescedChanges.sum();
+		}
+
+		/**
+		 * @return number of times a requestor was resolved again
+		 */
+		public long getRefreshes() {
+			return refreshes.sum();
+		}
+
+		/**
+		 * @return number of times a requestor was not resolved again because its
+		 *         filter did not match any of the changed services
+		 */
+		public long getSkippedRefreshes() {
+			return skippedRefreshes.sum();
+		}
+
+		@Override
+		public String toString() {
+			return String.format("changes=%d (coalesced %d) refreshes=%d (skipped %d)", getChanges(), //$NON-NLS-1$
+					getCoalescedChanges(), getRefreshes(), getSkippedRefreshes());
+		}
+	}
+
 	@Activate
 	void activate(BundleContext bundleContext) {
 		this.supplierContextTracker = new BundleTracker<>(bundleContext,
@@ -82,7 +156,7 @@ public class ServiceSupplier extends ExtendedObjectSupplier implements EventHand
 					@Override
 					public ServiceSupplierContext addingBundle(Bundle bundle, BundleEvent event) {
 						return new ServiceSupplierContext(bundle, bundleContext,
-								(t, e) -> logError("Injection failed", e));//$NON-NLS-1$
+								(t, e) -> logError("Injection failed", e), statistics);//$NON-NLS-1$
 					}
 
 					@Override
@@ -141,13 +215,8 @@ public class ServiceSupplier extends ExtendedObjectSupplier implements EventHand
 		try {
 			Filter filter = supplierContext.getFilter(qualifier.filterExpression());
 			ServiceSupplierTracker<?> tracker = supplierContext.getTracker(cls);
-			return tracker.getAndTrack(filter, track ? requestor : null, s -> {
-				Optional<?> service = s.findFirst();
-				if (service.isPresent()) {
-					return service.get();
-				}
-				return IInjector.NOT_A_VALUE;
-			});
+			return tracker.getAndTrack(filter, track ? requestor : null,
+					services -> services.isEmpty() ? IInjector.NOT_A_VALUE : services.get(0));
 		} catch (InvalidSyntaxException e) {
 			logError("Invalid filter expression", e); //$NON-NLS-1$
 			return IInjector.NOT_A_VALUE;
@@ -160,7 +229,7 @@ public class ServiceSupplier extends ExtendedObjectSupplier implements EventHand
 		try {
 			Filter filter = supplierContext.getFilter(qualifier.filterExpression());
 			ServiceSupplierTracker<?> tracker = supplierContext.getTracker(cls);
-			return tracker.getAndTrack(filter, track ? requestor : null, s -> s.collect(Collectors.toList()));
+			return tracker.getAndTrack(filter, track ? requestor : null, ArrayList::new);
 		} catch (InvalidSyntaxException e) {
 			logError("Invalid filter expression", e); //$NON-NLS-1$
 			return IInjector.NOT_A_VALUE;
@@ -183,10 +252,24 @@ public class ServiceSupplier extends ExtendedObjectSupplier implements EventHand
 		}
 	}
 
+	/**
+	 * @return the counters of the refreshes caused by service changes
+	 */
+	public RefreshStatistics getRefreshStatistics() {
+		return statistics;
+	}
+
 	@Override
 	public void handleEvent(Event event) {
-		supplierContextTracker.getTracked().values().stream().flatMap(ctx -> ctx.serviceTracker.values().stream())
-				.forEach(ServiceSupplierTracker::cleanup);
+		// contexts are often disposed in bulk, clean up once for all of them
+		if (cleanupScheduled.compareAndSet(false, true)) {
+			CompletableFuture.runAsync(() -> {
+				cleanupScheduled.set(false);
+				BundleTracker<ServiceSupplierContext> tracker = supplierContextTracker;
+				tracker.getTracked().values().stream().flatMap(ctx -> ctx.serviceTracker.values().stream())
+						.forEach(ServiceSupplierTracker::cleanup);
+			}, REFRESH_EXECUTOR);
+		}
 	}
 
 	@Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC)
@@ -207,21 +290,29 @@ public class ServiceSupplier extends ExtendedObjectSupplier implements EventHand
 		private Bundle bundle;
 		private BundleContext serviceBundleContext;
 		final Map<Class<?>, ServiceSupplierTracker<?>> serviceTracker = new ConcurrentHashMap<>();
+		private final Map<String, Filter> filters = new ConcurrentHashMap<>();
 		volatile boolean disposed;
 		private UncaughtExceptionHandler exceptionHandler;
+		private RefreshStatistics statistics;
 
 		ServiceSupplierContext(Bundle bundle, BundleContext serviceBundleContext,
-				UncaughtExceptionHandler exceptionHandler) {
+				UncaughtExceptionHandler exceptionHandler, RefreshStatistics statistics) {
 			this.bundle = bundle;
 			this.serviceBundleContext = serviceBundleContext;
 			this.exceptionHandler = exceptionHandler;
+			this.statistics = statistics;
 		}
 
 		public Filter getFilter(String filterExpression) throws InvalidSyntaxException {
 			if (filterExpression == null || filterExpression.isEmpty() || disposed) {
 				return null;
 			}
-			return serviceBundleContext.createFilter(filterExpression);
+			Filter filter = filters.get(filterExpression);
+			if (filter == null) {
+				filter = serviceBundleContext.createFilter(filterExpression);
+				filters.put(filterExpression, filter);
+			}
+			return filter;
 		}
 
 		@SuppressWarnings("unchecked")
@@ -232,7 +323,7 @@ public class ServiceSupplier extends ExtendedObjectSupplier implements EventHand
 					bundleContext = serviceBundleContext;
 				}
 				ServiceSupplierTracker<T> tracker = new ServiceSupplierTracker<>(bundleContext, serviceClass,
-						exceptionHandler);
+						exceptionHandler, statistics);
 				tracker.open();
 				return tracker;
 			});
@@ -246,7 +337,7 @@ public class ServiceSupplier extends ExtendedObjectSupplier implements EventHand
 				serviceTracker.compute(entry.getKey(), (k, v) -> {
 					if (v != null) {
 						v.close();
-						v.update(null);
+						v.update(null, ServiceEvent.MODIFIED);
 					}
 					return null;
 				});
@@ -260,33 +351,118 @@ public class ServiceSupplier extends ExtendedObjectSupplier implements EventHand
 
 	}
 
+	/**
+	 * A requestor tracking the services of a type, optionally restricted by a
+	 * filter.
+	 */
+	private static final class TrackedRequestor {
+		final IRequestor requestor;
+		final Filter filter;
+
+		TrackedRequestor(IRequestor requestor, Filter filter) {
+			this.requestor = requestor;
+			this.filter = filter;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * requestor.hashCode() + Objects.hashCode(filter);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof TrackedRequestor)) {
+				return false;
+			}
+			TrackedRequestor other = (TrackedRequestor) obj;
+			return requestor.equals(other.requestor) && Objects.equals(filter, other.filter);
+		}
+	}
+
+	/**
+	 * The services matching a filter, highest ranking first, as of a tracking
+	 * count of the tracker.
+	 */
+	private static final class Snapshot<T> {
+		final int trackingCount;
+		final List<T> services;
+
+		Snapshot(int trackingCount, List<T> services) {
+			this.trackingCount = trackingCount;
+			this.services = services;
+		}
+	}
+
 	private static final class ServiceSupplierTracker<T> extends ServiceTracker<T, T> {
 
-		Set<IRequestor> trackedRequestors = ConcurrentHashMap.newKeySet();
+		Set<TrackedRequestor> trackedRequestors = ConcurrentHashMap.newKeySet();
+		/** snapshots by filter string, the empty string for no filter */
+		private final Map<String, Snapshot<T>> snapshots = new ConcurrentHashMap<>();
 		private UncaughtExceptionHandler exceptionHandler;
-		private AtomicReference<CompletableFuture<?>> pending = new AtomicReference<>();
+		private RefreshStatistics statistics;
+
+		/**
+		 * Changes since the last refresh, as {@link ServiceEvent} type per reference;
+		 * guarded by itself
+		 */
+		private final Map<ServiceReference<T>, Integer> changes = new HashMap<>();
+		private boolean refreshAll;
+		private boolean refreshScheduled;
+		/** number of times the pending refresh was postponed */
+		private int postponed;
 
 		public ServiceSupplierTracker(BundleContext context, Class<T> clazz,
-				UncaughtExceptionHandler exceptionHandler) {
+				UncaughtExceptionHandler exceptionHandler, RefreshStatistics statistics) {
 			super(context, clazz, null);
 			this.exceptionHandler = exceptionHandler;
+			this.statistics = statistics;
 		}
 
-		public synchronized <R> R getAndTrack(Filter f, IRequestor requestor, Function<Stream<T>, R> extractor) {
-			cleanup();
-			Stream<T> stream = getTracked().entrySet().stream().filter(entry -> f == null || f.match(entry.getKey()))
-					.map(Entry::getValue);
-			R value = extractor.apply(stream);
+		/**
+		 * Extracts the value to inject from the services matching the filter and
+		 * tracks the requestor for changes of them. The services are taken from a
+		 * snapshot that is only rebuilt when the tracked services changed.
+		 *
+		 * @param f         the filter, may be <code>null</code>
+		 * @param requestor the requestor to track, may be <code>null</code>
+		 * @param extractor computes the value from the unmodifiable list of
+		 *                  services, highest ranking first
+		 * @return the extracted value
+		 */
+		public <R> R getAndTrack(Filter f, IRequestor requestor, Function<List<T>, R> extractor) {
+			R value = extractor.apply(getServices(f));
 			if (requestor != null) {
-				trackedRequestors.add(requestor);
+				trackedRequestors.add(new TrackedRequestor(requestor, f));
 			}
 			return value;
 		}
 
+		private List<T> getServices(Filter f) {
+			String key = f == null ? "" : f.toString(); //$NON-NLS-1$
+			int trackingCount = getTrackingCount();
+			Snapshot<T> snapshot = snapshots.get(key);
+			if (snapshot != null && snapshot.trackingCount == trackingCount) {
+				return snapshot.services;
+			}
+			// read the count first, a concurrent change makes the next call rebuild
+			List<T> services = new ArrayList<>();
+			for (Entry<ServiceReference<T>, T> entry : getTracked().entrySet()) {
+				if (f == null || f.match(entry.getKey())) {
+					services.add(entry.getValue());
+				}
+			}
+			snapshot = new Snapshot<>(trackingCount, Collections.unmodifiableList(services));
+			snapshots.put(key, snapshot);
+			return snapshot.services;
+		}
+
 		void cleanup() {
-			for (Iterator<IRequestor> iterator = trackedRequestors.iterator(); iterator.hasNext();) {
-				IRequestor requestor = iterator.next();
-				if (!requestor.isValid()) {
+			for (Iterator<TrackedRequestor> iterator = trackedRequestors.iterator(); iterator.hasNext();) {
+				TrackedRequestor tracked = iterator.next();
+				if (!tracked.requestor.isValid()) {
 					iterator.remove();
 				}
 			}
@@ -296,7 +472,7 @@ public class ServiceSupplier extends ExtendedObjectSupplier implements EventHand
 		public T addingService(ServiceReference<T> reference) {
 			T service = super.addingService(reference);
 			if (service != null) {
-				update(() -> getService(reference) != null);
+				update(reference, ServiceEvent.REGISTERED);
 			}
 			return service;
 		}
@@ -304,61 +480,123 @@ public class ServiceSupplier extends ExtendedObjectSupplier implements EventHand
 		@Override
 		public void removedService(ServiceReference<T> reference, T service) {
 			super.removedService(reference, service);
-			update(() -> getService(reference) == null);
+			update(reference, ServiceEvent.UNREGISTERING);
 		}
 
 		@Override
 		public void modifiedService(ServiceReference<T> reference, T service) {
 			super.modifiedService(reference, service);
-			update(null);
+			update(reference, ServiceEvent.MODIFIED);
 		}
 
-		private void update(BooleanSupplier check) {
-			IRequestor[] requestors = trackedRequestors.toArray(IRequestor[]::new);
-			if (requestors.length == 0) {
+		/**
+		 * Records a change and schedules a refresh of the requestors unless one is
+		 * already pending.
+		 *
+		 * @param reference the changed service, or <code>null</code> to refresh all
+		 *                  requestors
+		 * @param type      the {@link ServiceEvent} type of the change
+		 */
+		private void update(ServiceReference<T> reference, int type) {
+			if (trackedRequestors.isEmpty()) {
 				return;
 			}
-			CompletableFuture<Void> execution = new CompletableFuture<>();
-			CompletableFuture<?> pendingExecution = pending.getAndSet(execution);
-			if (pendingExecution != null) {
-				pendingExecution.cancel(true);
-			}
-			execution.completeAsync(() -> {
-				if (check != null) {
-					do {
-						Thread.yield();
-					} while (!check.getAsBoolean() && !execution.isCancelled());
-				}
-				if (!execution.isCancelled()) {
-					refreshRequestors(requestors);
+			statistics.changes.increment();
+			synchronized (changes) {
+				if (reference == null) {
+					refreshAll = true;
+				} else {
+					changes.put(reference, type);
 				}
-				return null;
-			}).handle((v, e) -> {
-				if (e instanceof CancellationException) {
-					// request was canceled
-					return null;
+				if (refreshScheduled) {
+					statistics.coalescedChanges.increment();
+					return;
 				}
+				refreshScheduled = true;
+			}
+			scheduleRefresh();
+		}
+
+		private void scheduleRefresh() {
+			CompletableFuture.runAsync(this::refresh, REFRESH_EXECUTOR).whenComplete((v, e) -> {
 				if (e != null) {
 					exceptionHandler.uncaughtException(Thread.currentThread(), e);
 				}
-				pending.compareAndSet(execution, null);
-				return null;
 			});
 		}
 
-		private synchronized void refreshRequestors(IRequestor[] requestors) {
+		private void refresh() {
+			Map<ServiceReference<T>, Integer> changed;
+			boolean all;
+			synchronized (changes) {
+				// the tracker records an added service only after the customizer
+				// returned, try again later if it did not yet
+				if (postponed < MAX_POSTPONE && !changes.entrySet().stream()
+						.allMatch(entry -> isApplied(entry.getKey(), entry.getValue()))) {
+					postponed++;
+					scheduleRefresh();
+					return;
+				}
+				changed = new HashMap<>(changes);
+				all = refreshAll;
+				changes.clear();
+				refreshAll = false;
+				refreshScheduled = false;
+				postponed = 0;
+			}
+			Set<IRequestor> requestors = new LinkedHashSet<>();
+			for (TrackedRequestor tracked : trackedRequestors) {
+				if (!tracked.requestor.isValid()) {
+					trackedRequestors.remove(tracked);
+				} else if (all || matches(tracked.filter, changed)) {
+					requestors.add(tracked.requestor);
+				} else {
+					statistics.skippedRefreshes.increment();
+				}
+			}
+			if (!requestors.isEmpty()) {
+				refreshRequestors(requestors);
+			}
+		}
+
+		private boolean isApplied(ServiceReference<T> reference, int type) {
+			if (getTrackingCount() == -1) {
+				return true; // closed, nothing to wait for
+			}
+			switch (type) {
+			case ServiceEvent.REGISTERED:
+				return getService(reference) != null;
+			case ServiceEvent.UNREGISTERING:
+				return getService(reference) == null;
+			default:
+				return true;
+			}
+		}
+
+		private static <T> boolean matches(Filter filter, Map<ServiceReference<T>, Integer> changed) {
+			if (filter == null) {
+				return true;
+			}
+			for (Entry<ServiceReference<T>, Integer> entry : changed.entrySet()) {
+				// the previous properties of a modified service are unknown
+				if (entry.getValue().intValue() == ServiceEvent.MODIFIED || filter.match(entry.getKey())) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private synchronized void refreshRequestors(Set<IRequestor> requestors) {
 			for (IRequestor requestor : requestors) {
 				if (requestor.isValid()) {
+					statistics.refreshes.increment();
 					try {
 						requestor.resolveArguments(false);
 						requestor.execute();
 					} catch (RuntimeException e) {
 						exceptionHandler.uncaughtException(Thread.currentThread(), e);
 					}
-				} else {
-					trackedRequestors.remove(requestor);
 				}
-
 			}
 		}
 
@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.core.di.internal.extensions.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Subscribers keyed by event topic, stored as a tree of topic segments. Topics
+ * follow the rules of the event admin: a topic is a sequence of segments
+ * separated by <code>/</code>, and a topic ending in <code>/*</code> or the
+ * topic <code>*</code> matches all topics below it.
+ * <p>
+ * Looking up the subscribers of an event costs the number of topic segments
+ * plus the number of matching subscribers, independent of the total number of
+ * subscriptions.
+ * </p>
+ * This class is not thread safe.
+ *
+ * @param <T> the subscriber type
+ */
+final public class TopicTree<T> {
+
+	private static final String WILDCARD = "*"; //$NON-NLS-1$
+	private static final char SEPARATOR = '/';
+
+	private static final class Node<T> {
+		final Node<T> parent;
+		final String segment;
+		Map<String, Node<T>> children;
+		/** subscribers of the topic ending at this node */
+		Set<T> exact;
+		/** subscribers of the topics below this node */
+		Set<T> wildcard;
+
+		Node(Node<T> parent, String segment) {
+			this.parent = parent;
+			this.segment = segment;
+		}
+
+		boolean isEmpty() {
+			return (children == null || children.isEmpty()) && (exact == null || exact.isEmpty())
+					&& (wildcard == null || wildcard.isEmpty());
+		}
+	}
+
+	private final Node<T> root = new Node<>(null, null);
+	/** number of subscribers per topic */
+	private final Map<String, Integer> topics = new HashMap<>();
+
+	/**
+	 * Adds a subscriber to a topic.
+	 *
+	 * @return <code>true</code> if the topic had no subscribers before
+	 */
+	public boolean add(String topic, T subscriber) {
+		boolean isWildcard = isWildcard(topic);
+		Node<T> node = find(pattern(topic, isWildcard), true);
+		Set<T> subscribers;
+		if (isWildcard) {
+			if (node.wildcard == null)
+				node.wildcard = new LinkedHashSet<>(2);
+			subscribers = node.wildcard;
+		} else {
+			if (node.exact == null)
+				node.exact = new LinkedHashSet<>(2);
+			subscribers = node.exact;
+		}
+		if (!subscribers.add(subscriber))
+			return false;
+		return topics.merge(topic, 1, Integer::sum) == 1;
+	}
+
+	/**
+	 * Removes a subscriber from a topic.
+	 *
+	 * @return <code>true</code> if the topic has no subscribers left
+	 */
+	public boolean remove(String topic, T subscriber) {
+		boolean isWildcard = isWildcard(topic);
+		Node<T> node = find(pattern(topic, isWildcard), false);
+		if (node == null)
+			return false;
+		Set<T> subscribers = isWildcard ? node.wildcard : node.exact;
+		if (subscribers == null || !subscribers.remove(subscriber))
+			return false;
+		// prune empty branches
+		while (node.parent != null && node.isEmpty()) {
+			node.parent.children.remove(node.segment);
+			node = node.parent;
+		}
+		if (topics.merge(topic, -1, Integer::sum) > 0)
+			return false;
+		topics.remove(topic);
+		return true;
+	}
+
+	/**
+	 * @return the subscribers of all topics matching the given event topic
+	 */
+	public List<T> match(String topic) {
+		List<T> result = new ArrayList<>();
+		Node<T> node = root;
+		int start = 0;
+		while (true) {
+			// a wildcard matches any topic with at least one more segment
+			if (node.wildcard != null)
+				result.addAll(node.wildcard);
+			int end = topic.indexOf(SEPARATOR, start);
+			String segment = (end == -1) ? topic.substring(start) : topic.substring(start, end);
+			node = (node.children == null) ? null : node.children.get(segment);
+			if (node == null)
+				return result;
+			if (end == -1) {
+				if (node.exact != null)
+					result.addAll(node.exact);
+				return result;
+			}
+			start = end + 1;
+		}
+	}
+
+	public boolean isEmpty() {
+		return topics.isEmpty();
+	}
+
+	private Node<T> find(String pattern, boolean create) {
+		Node<T> node = root;
+		if (pattern.isEmpty())
+			return node;
+		int start = 0;
+		while (node != null) {
+			int end = pattern.indexOf(SEPARATOR, start);
+			String segment = (end == -1) ? pattern.substring(start) : pattern.substring(start, end);
+			Node<T> child = (node.children == null) ? null : node.children.get(segment);
+			if (child == null && create) {
+				if (node.children == null)
+					node.children = new HashMap<>(4);
+				child = new Node<>(node, segment);
+				node.children.put(segment, child);
+			}
+			node = child;
+			if (end == -1)
+				break;
+			start = end + 1;
+		}
+		return node;
+	}
+
+	private static boolean isWildcard(String topic) {
+		return topic.equals(WILDCARD) || topic.endsWith(SEPARATOR + WILDCARD);
+	}
+
+	/**
+	 * @return the topic without a trailing wildcard
+	 */
+	private static String pattern(String topic, boolean isWildcard) {
+		if (!isWildcard)
+			return topic;
+		return topic.substring(0, Math.max(0, topic.length() - 2));
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2017 IBM Corporation and others.
+ * Copyright (c) 2010, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -201,4 +201,35 @@ public interface IInjector {
 	 * @since 1.2
 	 */
 	void setDefaultSupplier(PrimaryObjectSupplier objectSupplier);
+
+	/**
+	 * Starts a group of updates on the current thread. Until the group ends, a
+	 * tracked field or method whose dependencies change on this thread is
+	 * resolved as usual but not injected. When the outermost group ends, each
+	 * such field or method is injected once with the latest values, in the order
+	 * in which they were first changed within the group. Objects that have been
+	 * uninjected in the meantime are skipped.
+	 * <p>
+	 * Groups may be nested; every call must be matched by a call to
+	 * {@link #endUpdates()}, typically in a <code>finally</code> block.
+	 * Changes made on other threads are not affected.
+	 * </p>
+	 * <p>
+	 * Only changes of state are grouped. Values delivered once, such as events
+	 * injected by an <code>@EventTopic</code> supplier, are injected right away
+	 * and never coalesced.
+	 * </p>
+	 * @since 1.9
+	 */
+	void beginUpdates();
+
+	/**
+	 * Ends a group of updates started by {@link #beginUpdates()}. Ending the
+	 * outermost group injects the deferred updates.
+	 * @throws InjectionException if an exception occurred while injecting a
+	 * deferred update; the remaining updates are still injected
+	 * @throws IllegalStateException if no group was started on the current thread
+	 * @since 1.9
+	 */
+	void endUpdates() throws InjectionException;
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2015 IBM Corporation and others.
+ * Copyright (c) 2010, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -40,8 +40,7 @@ public class ClassRequestor extends Requestor<Class<?>> {
 	}
 
 	@Override
-	public Object execute() throws InjectionException {
-		clearResolvedArgs();
+	protected Object doExecute(Object[] args) throws InjectionException {
 		return null;
 	}
 
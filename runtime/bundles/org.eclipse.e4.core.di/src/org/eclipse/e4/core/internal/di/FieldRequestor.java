@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2016 IBM Corporation and others.
+ * Copyright (c) 2010, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -21,35 +21,39 @@ import org.eclipse.e4.core.di.suppliers.PrimaryObjectSupplier;
 
 public class FieldRequestor extends Requestor<Field> {
 
+	private final InjectionPoint<Field> point;
+
 	public FieldRequestor(Field field, IInjector injector, PrimaryObjectSupplier primarySupplier, PrimaryObjectSupplier tempSupplier, Object requestingObject, boolean track) {
-		super(field, injector, primarySupplier, tempSupplier, requestingObject, track);
+		this(InjectionPlan.point(field), injector, primarySupplier, tempSupplier, requestingObject, track);
+	}
+
+	FieldRequestor(InjectionPoint<Field> point, IInjector injector, PrimaryObjectSupplier primarySupplier, PrimaryObjectSupplier tempSupplier, Object requestingObject, boolean track) {
+		super(point.member, injector, primarySupplier, tempSupplier, requestingObject, track);
+		this.point = point;
 	}
 
 	@Override
-	public Object execute() throws InjectionException {
-		if (actualArgs == null)
+	protected Object doExecute(Object[] args) throws InjectionException {
+		if (args == null)
 			return null; // optional field
-		setField(location, actualArgs[0]);
-		clearResolvedArgs();
+		setField(args[0]);
 		return null;
 	}
 
 	@Override
 	protected IObjectDescriptor[] calcDependentObjects() {
-		IObjectDescriptor objectDescriptor = new ObjectDescriptor(location.getGenericType(), location.getAnnotations());
-		return new IObjectDescriptor[] {objectDescriptor};
+		return point.descriptors;
 	}
 
-	private boolean setField(Field field, Object value) throws InjectionException {
+	private boolean setField(Object value) throws InjectionException {
 		Object userObject = getRequestingObject();
 		if (userObject == null)
 			return false;
-		if (!field.isAccessible()) {
-			field.setAccessible(true);
-		}
 		try {
-			field.set(userObject, value);
-		} catch (IllegalArgumentException | IllegalAccessException e) {
+			point.invoke(userObject, new Object[] {value});
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
 			throw new InjectionException(e);
 		}
 		return true;
@@ -0,0 +1,524 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.core.internal.di;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.eclipse.e4.core.di.annotations.ConcurrentPreDestroy;
+import org.eclipse.e4.core.internal.di.osgi.LogHelper;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.FrameworkUtil;
+
+/**
+ * Injection metadata of a class, computed once and shared by all injectors.
+ * For the class as the runtime type of injected objects the plan holds the
+ * ordered injection points of the whole class hierarchy; for the class as the
+ * declaring class of members it holds the {@link InjectionPoint}s of those
+ * members.
+ * <p>
+ * Plans are stored in a {@link ClassValue}, so they do not prevent classes from
+ * being unloaded.
+ * </p>
+ * <p>
+ * If the class was compiled with the injector annotation processor of
+ * <code>org.eclipse.e4.core.di.annotations.processor</code>, its members are
+ * accessed through the generated injector class instead of reflection. This
+ * can be turned off with the system property
+ * <code>org.eclipse.e4.core.di.generatedInjectors=false</code>.
+ * </p>
+ */
+final class InjectionPlan {
+
+	final static private boolean shouldDebug = Boolean.getBoolean("org.eclipse.e4.core.di.debug"); //$NON-NLS-1$
+
+	final static private String JAVA_OBJECT = "java.lang.Object"; //$NON-NLS-1$
+
+	/** Must match InjectorProcessor.SUFFIX */
+	final static private String GENERATED_SUFFIX = "$$E4Injector"; //$NON-NLS-1$
+
+	final static private boolean useGeneratedInjectors = Boolean
+			.parseBoolean(System.getProperty("org.eclipse.e4.core.di.generatedInjectors", "true")); //$NON-NLS-1$ //$NON-NLS-2$
+
+	/** (int member, Object target, Object[] args)Object */
+	final static private MethodType GENERATED_TYPE = MethodType.methodType(Object.class, int.class, Object.class, Object[].class);
+
+	private static final GeneratedInjector NO_GENERATED_INJECTOR = new GeneratedInjector(new String[0], null);
+
+	private static final ClassValue<InjectionPlan> plans = new ClassValue<InjectionPlan>() {
+		@Override
+		protected InjectionPlan computeValue(Class<?> type) {
+			return new InjectionPlan(type);
+		}
+	};
+
+	/**
+	 * Injected members declared by one class of the hierarchy.
+	 */
+	static final class Level {
+		final Class<?> type;
+		/** whether the class declares any static field or method */
+		final boolean hasStatic;
+		final List<InjectionPoint<Field>> fields;
+		/** methods not overridden further down the hierarchy */
+		final List<InjectionPoint<Method>> methods;
+
+		Level(Class<?> type, boolean hasStatic, List<InjectionPoint<Field>> fields, List<InjectionPoint<Method>> methods) {
+			this.type = type;
+			this.hasStatic = hasStatic;
+			this.fields = fields;
+			this.methods = methods;
+		}
+	}
+
+	/**
+	 * The member signatures and the invoke method of a generated injector class.
+	 */
+	private static final class GeneratedInjector {
+		final String[] members;
+		final MethodHandle invoke;
+
+		GeneratedInjector(String[] members, MethodHandle invoke) {
+			this.members = members;
+			this.invoke = invoke;
+		}
+	}
+
+	/**
+	 * Methods found for an annotation. Caches are keyed by annotation name so that
+	 * they do not keep annotation classes of other bundles alive; the annotation
+	 * class is checked on lookup.
+	 */
+	private static final class AnnotatedMethods {
+		final WeakReference<Class<?>> annotation;
+		final List<InjectionPoint<Method>> methods;
+
+		AnnotatedMethods(Class<?> annotation, List<InjectionPoint<Method>> methods) {
+			this.annotation = new WeakReference<>(annotation);
+			this.methods = methods;
+		}
+	}
+
+	private final Class<?> type;
+	private final Map<Member, InjectionPoint<?>> points = new ConcurrentHashMap<>();
+	private final Map<String, AnnotatedMethods> qualifiedMethods = new ConcurrentHashMap<>(4);
+	private final Map<String, AnnotatedMethods> lifecycleMethods = new ConcurrentHashMap<>(4);
+
+	// computed on demand; races only cause duplicate computation
+	private volatile Method[] declaredMethods;
+	private volatile Field[] declaredFields;
+	private volatile Level[] levels;
+	private volatile List<InjectionPoint<Constructor<?>>> constructors;
+	private volatile GeneratedInjector generatedInjector;
+	private volatile Map<MethodSignature, List<Class<?>>> methodTable;
+	private final boolean singleton;
+	private final boolean concurrentPreDestroy;
+
+	private InjectionPlan(Class<?> type) {
+		this.type = type;
+		this.singleton = type.isAnnotationPresent(Singleton.class);
+		this.concurrentPreDestroy = type.isAnnotationPresent(ConcurrentPreDestroy.class);
+	}
+
+	static InjectionPlan of(Class<?> type) {
+		return plans.get(type);
+	}
+
+	/**
+	 * Returns the shared injection point for the given member.
+	 */
+	@SuppressWarnings("unchecked")
+	static <L extends AccessibleObject & Member> InjectionPoint<L> point(L member) {
+		return (InjectionPoint<L>) of(member.getDeclaringClass()).points.computeIfAbsent(member, m -> new InjectionPoint<>(member));
+	}
+
+	boolean isSingleton() {
+		return singleton;
+	}
+
+	/**
+	 * @return whether the class allows its pre-destroy methods to be called on any
+	 *         thread, see {@link ConcurrentPreDestroy}
+	 */
+	boolean isConcurrentPreDestroy() {
+		return concurrentPreDestroy;
+	}
+
+	/**
+	 * @return declared methods of this class, excluding bridge methods
+	 */
+	Method[] getDeclaredMethods() {
+		Method[] result = declaredMethods;
+		if (result == null) {
+			result = Stream.of(type.getDeclaredMethods()).filter(m -> !m.isBridge()).toArray(Method[]::new);
+			declaredMethods = result;
+		}
+		return result;
+	}
+
+	Field[] getDeclaredFields() {
+		Field[] result = declaredFields;
+		if (result == null) {
+			result = type.getDeclaredFields();
+			declaredFields = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the injected fields and methods of the class hierarchy, superclasses
+	 * first. <code>java.lang.Object</code> is not part of the hierarchy unless it
+	 * is the class itself.
+	 */
+	Level[] getLevels() {
+		Level[] result = levels;
+		if (result == null) {
+			result = calcLevels();
+			levels = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the constructors usable for injection, sorted by descending number of
+	 * arguments: public or package visible ones that are either annotated with
+	 * {@link Inject} or take no arguments.
+	 */
+	List<InjectionPoint<Constructor<?>>> getConstructors() {
+		List<InjectionPoint<Constructor<?>>> result = constructors;
+		if (result == null) {
+			Constructor<?>[] declared = type.getDeclaredConstructors();
+			Arrays.sort(declared, Comparator.comparing(c -> c.getParameterCount(), Comparator.reverseOrder()));
+			result = new ArrayList<>(declared.length);
+			for (Constructor<?> constructor : declared) {
+				// skip private and protected constructors; allow public and package visibility
+				int modifiers = constructor.getModifiers();
+				if (((modifiers & Modifier.PRIVATE) != 0) || ((modifiers & Modifier.PROTECTED) != 0))
+					continue;
+				// unless this is the default constructor, it has to be tagged
+				if (!constructor.isAnnotationPresent(Inject.class) && constructor.getParameterCount() != 0)
+					continue;
+				result.add(point(constructor));
+			}
+			result = Collections.unmodifiableList(result);
+			constructors = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the methods declared by this class that are annotated with the
+	 * given qualifier, in declaration order.
+	 */
+	List<InjectionPoint<Method>> getDeclaredMethods(Class<? extends Annotation> qualifier) {
+		return getAnnotatedMethods(qualifiedMethods, qualifier, this::calcQualifiedMethods);
+	}
+
+	/**
+	 * Returns the methods of the class hierarchy annotated with the given
+	 * lifecycle annotation, such as {@link javax.annotation.PostConstruct},
+	 * superclasses first and without methods overridden further down the
+	 * hierarchy.
+	 */
+	List<InjectionPoint<Method>> getLifecycleMethods(Class<? extends Annotation> annotation) {
+		return getAnnotatedMethods(lifecycleMethods, annotation, this::calcLifecycleMethods);
+	}
+
+	private static List<InjectionPoint<Method>> getAnnotatedMethods(Map<String, AnnotatedMethods> cache,
+			Class<? extends Annotation> annotation, Function<Class<? extends Annotation>, List<InjectionPoint<Method>>> calc) {
+		AnnotatedMethods result = cache.get(annotation.getName());
+		if (result == null || result.annotation.get() != annotation) {
+			result = new AnnotatedMethods(annotation, calc.apply(annotation));
+			cache.put(annotation.getName(), result);
+		}
+		return result.methods;
+	}
+
+	private List<InjectionPoint<Method>> calcQualifiedMethods(Class<? extends Annotation> qualifier) {
+		List<InjectionPoint<Method>> result = new ArrayList<>();
+		for (Method method : getDeclaredMethods()) {
+			if (method.getAnnotation(qualifier) != null)
+				result.add(point(method));
+		}
+		return compact(result);
+	}
+
+	private List<InjectionPoint<Method>> calcLifecycleMethods(Class<? extends Annotation> annotation) {
+		List<Class<?>> hierarchy = getHierarchy();
+		List<InjectionPoint<Method>> result = new ArrayList<>();
+		for (int i = hierarchy.size() - 1; i >= 0; i--) {
+			for (Method method : of(hierarchy.get(i)).getDeclaredMethods()) {
+				if (!method.isAnnotationPresent(annotation)) {
+					if (shouldDebug)
+						checkAnnotationMismatch(method, annotation);
+					continue;
+				}
+				if (isOverridden(method))
+					continue;
+				result.add(point(method));
+			}
+		}
+		return compact(result);
+	}
+
+	private static void checkAnnotationMismatch(Method method, Class<? extends Annotation> annotation) {
+		for (Annotation a : method.getAnnotations()) {
+			if (annotation.getName().equals(a.annotationType().getName())) {
+				StringBuilder tmp = new StringBuilder();
+				tmp.append("Possbible annotation mismatch: method \""); //$NON-NLS-1$
+				tmp.append(method.toString());
+				tmp.append("\" annotated with \""); //$NON-NLS-1$
+				tmp.append(describeClass(a.annotationType()));
+				tmp.append("\" but was looking for \""); //$NON-NLS-1$
+				tmp.append(describeClass(annotation));
+				tmp.append("\""); //$NON-NLS-1$
+				LogHelper.logWarning(tmp.toString(), null);
+			}
+		}
+	}
+
+	/** Provide a human-meaningful description of the provided class */
+	private static String describeClass(Class<?> cl) {
+		Bundle b = FrameworkUtil.getBundle(cl);
+		if (b != null) {
+			return b.getSymbolicName() + ":" + b.getVersion() + ":" + cl.getName(); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		CodeSource clazzCS = cl.getProtectionDomain().getCodeSource();
+		if (clazzCS != null) {
+			return clazzCS.getLocation() + ">" + cl.getName(); //$NON-NLS-1$
+		}
+		if (cl.getClassLoader() == null) {
+			return cl.getName() + " [via bootstrap classloader]"; //$NON-NLS-1$
+		}
+		return cl.getName();
+	}
+
+	/**
+	 * Returns an invoker for a member of this class provided by the injector
+	 * generated at build time, see {@link InjectionPoint}.
+	 *
+	 * @return the invoker, or <code>null</code> if the member needs to be accessed
+	 *         reflectively
+	 */
+	MethodHandle getGeneratedInvoker(Member member) {
+		GeneratedInjector generated = generatedInjector;
+		if (generated == null) {
+			generated = loadGeneratedInjector();
+			generatedInjector = generated;
+		}
+		if (generated == NO_GENERATED_INJECTOR)
+			return null;
+		String signature = signature(member);
+		for (int i = 0; i < generated.members.length; i++) {
+			if (generated.members[i].equals(signature))
+				return MethodHandles.insertArguments(generated.invoke, 0, i);
+		}
+		return null;
+	}
+
+	private GeneratedInjector loadGeneratedInjector() {
+		ClassLoader loader = type.getClassLoader();
+		if (!useGeneratedInjectors || loader == null)
+			return NO_GENERATED_INJECTOR;
+		try {
+			Class<?> generatedClass = Class.forName(type.getName() + GENERATED_SUFFIX, true, loader);
+			String[] members = (String[]) generatedClass.getField("MEMBERS").get(null); //$NON-NLS-1$
+			MethodHandle invoke = MethodHandles.publicLookup().findStatic(generatedClass, "invoke", GENERATED_TYPE); //$NON-NLS-1$
+			return new GeneratedInjector(members, invoke);
+		} catch (ClassNotFoundException e) {
+			return NO_GENERATED_INJECTOR; // not compiled with the annotation processor
+		} catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+			LogHelper.logError("Unable to use the generated injector of " + type.getName(), e); //$NON-NLS-1$
+			return NO_GENERATED_INJECTOR;
+		}
+	}
+
+	/**
+	 * @return the member signature used by generated injectors
+	 */
+	private static String signature(Member member) {
+		if (member instanceof Field)
+			return member.getName();
+		Class<?>[] parameterTypes;
+		StringBuilder result = new StringBuilder();
+		if (member instanceof Method) {
+			result.append(member.getName());
+			parameterTypes = ((Method) member).getParameterTypes();
+		} else {
+			result.append("<init>"); //$NON-NLS-1$
+			parameterTypes = ((Constructor<?>) member).getParameterTypes();
+		}
+		result.append('(');
+		for (int i = 0; i < parameterTypes.length; i++) {
+			if (i > 0)
+				result.append(',');
+			result.append(parameterTypes[i].getTypeName());
+		}
+		return result.append(')').toString();
+	}
+
+	/**
+	 * @return this class and its superclasses below <code>java.lang.Object</code>,
+	 *         starting with this class
+	 */
+	private List<Class<?>> getHierarchy() {
+		List<Class<?>> hierarchy = new ArrayList<>(5);
+		Class<?> current = type;
+		hierarchy.add(current);
+		Class<?> superClass;
+		while ((superClass = current.getSuperclass()) != null && !superClass.getName().equals(JAVA_OBJECT)) {
+			hierarchy.add(superClass);
+			current = superClass;
+		}
+		return hierarchy;
+	}
+
+	private Level[] calcLevels() {
+		List<Class<?>> hierarchy = getHierarchy();
+		Level[] result = new Level[hierarchy.size()];
+		for (int i = 0; i < result.length; i++) {
+			Class<?> levelClass = hierarchy.get(i);
+			InjectionPlan levelPlan = of(levelClass);
+			boolean hasStatic = false;
+			List<InjectionPoint<Field>> fields = new ArrayList<>();
+			for (Field field : levelPlan.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers()))
+					hasStatic = true;
+				if (field.isAnnotationPresent(Inject.class))
+					fields.add(point(field));
+			}
+			List<InjectionPoint<Method>> methods = new ArrayList<>();
+			for (Method method : levelPlan.getDeclaredMethods()) {
+				if (isOverridden(method))
+					continue; // process in the subclass
+				if (Modifier.isStatic(method.getModifiers()))
+					hasStatic = true;
+				if (method.isAnnotationPresent(Inject.class))
+					methods.add(point(method));
+			}
+			result[result.length - 1 - i] = new Level(levelClass, hasStatic, compact(fields), compact(methods));
+		}
+		return result;
+	}
+
+	private static <T> List<T> compact(List<T> list) {
+		return list.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(list);
+	}
+
+	/**
+	 * Checks if a given method of the class hierarchy is overridden by a method
+	 * declared further down the hierarchy. Private and static methods are never
+	 * overridden; package visible methods only by classes of the same package.
+	 */
+	boolean isOverridden(Method method) {
+		int modifiers = method.getModifiers();
+		if (Modifier.isPrivate(modifiers))
+			return false;
+		if (Modifier.isStatic(modifiers))
+			return false;
+		List<Class<?>> declaringClasses = getMethodTable().get(new MethodSignature(method));
+		if (declaringClasses == null)
+			return false;
+		// method is not private if we reached this line, check not(public OR protected)
+		boolean isDefault = !(Modifier.isPublic(modifiers) || Modifier.isProtected(modifiers));
+		Class<?> methodClass = method.getDeclaringClass();
+		for (Class<?> subClass : declaringClasses) {
+			if (subClass == methodClass)
+				return false; // remaining classes are superclasses
+			if (isDefault) { // must be in the same package to override
+				Package originalPackage = methodClass.getPackage();
+				Package overridePackage = subClass.getPackage();
+
+				if (originalPackage == null && overridePackage == null)
+					return true;
+				if (originalPackage == null || overridePackage == null)
+					return false;
+				if (originalPackage.equals(overridePackage))
+					return true;
+			} else
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return for each method signature of the class hierarchy the classes
+	 *         declaring it, starting with the leaf class
+	 */
+	private Map<MethodSignature, List<Class<?>>> getMethodTable() {
+		Map<MethodSignature, List<Class<?>>> result = methodTable;
+		if (result == null) {
+			result = new HashMap<>();
+			for (Class<?> levelClass : getHierarchy()) {
+				for (Method method : of(levelClass).getDeclaredMethods()) {
+					result.computeIfAbsent(new MethodSignature(method), k -> new ArrayList<>(2)).add(levelClass);
+				}
+			}
+			methodTable = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Name and parameter types of a method. Strictly speaking overriding would
+	 * need to compare the erasures.
+	 */
+	private static final class MethodSignature {
+		private final String name;
+		private final Class<?>[] parameterTypes;
+		private final int hashCode;
+
+		MethodSignature(Method method) {
+			this.name = method.getName();
+			this.parameterTypes = method.getParameterTypes();
+			this.hashCode = 31 * name.hashCode() + Arrays.hashCode(parameterTypes);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof MethodSignature))
+				return false;
+			MethodSignature other = (MethodSignature) obj;
+			return name.equals(other.name) && Arrays.equals(parameterTypes, other.parameterTypes);
+		}
+	}
+}
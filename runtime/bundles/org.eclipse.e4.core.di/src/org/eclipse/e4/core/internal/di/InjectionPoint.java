@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.core.internal.di;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import org.eclipse.e4.core.di.suppliers.IObjectDescriptor;
+
+/**
+ * An injectable field, method or constructor together with the descriptors of
+ * its arguments and a method handle invoking it. The handle calls the injector
+ * generated at build time if there is one, or accesses the member reflectively.
+ * Points are created once per member and shared by all requestors, see
+ * {@link InjectionPlan#point(Member)}.
+ */
+final class InjectionPoint<L extends AccessibleObject & Member> {
+
+	/** (Object target, Object[] args)Object */
+	private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+	final L member;
+	final boolean isStatic;
+	final IObjectDescriptor[] descriptors;
+	/** for methods and constructors; <code>null</code> for fields */
+	final Annotation[][] parameterAnnotations;
+
+	private volatile MethodHandle invoker;
+
+	InjectionPoint(L member) {
+		this.member = member;
+		this.isStatic = Modifier.isStatic(member.getModifiers());
+		this.parameterAnnotations = (member instanceof Executable) ? ((Executable) member).getParameterAnnotations() : null;
+		this.descriptors = calcDescriptors();
+	}
+
+	/**
+	 * Sets the field, calls the method or creates a new instance using the
+	 * constructor. Exceptions thrown by the member itself are propagated
+	 * unchanged.
+	 *
+	 * @param target the object to inject; ignored for static members and constructors
+	 * @param args the actual arguments; may be <code>null</code> if the member takes no arguments
+	 * @return the method result or the new instance; <code>null</code> for fields
+	 */
+	Object invoke(Object target, Object[] args) throws Throwable {
+		MethodHandle handle = invoker;
+		if (handle == null) {
+			handle = createInvoker();
+			invoker = handle;
+		}
+		return handle.invokeExact(target, args);
+	}
+
+	private MethodHandle createInvoker() throws IllegalAccessException {
+		MethodHandle generated = InjectionPlan.of(member.getDeclaringClass()).getGeneratedInvoker(member);
+		if (generated != null)
+			return generated;
+		if (!member.isAccessible()) {
+			member.setAccessible(true);
+		}
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		MethodHandle handle;
+		int argCount;
+		if (member instanceof Field) {
+			handle = lookup.unreflectSetter((Field) member);
+			argCount = 1;
+		} else if (member instanceof Method) {
+			handle = lookup.unreflect((Method) member).asFixedArity();
+			argCount = ((Method) member).getParameterCount();
+		} else {
+			handle = lookup.unreflectConstructor((Constructor<?>) member).asFixedArity();
+			argCount = ((Constructor<?>) member).getParameterCount();
+		}
+		if (isStatic || member instanceof Constructor)
+			handle = MethodHandles.dropArguments(handle, 0, Object.class);
+		return handle.asSpreader(Object[].class, argCount).asType(INVOKER_TYPE);
+	}
+
+	private IObjectDescriptor[] calcDescriptors() {
+		if (member instanceof Field) {
+			Field field = (Field) member;
+			return new IObjectDescriptor[] { new ObjectDescriptor(field.getGenericType(), field.getAnnotations()) };
+		}
+		Type[] logicalParams;
+		if (member instanceof Method) {
+			logicalParams = ((Method) member).getGenericParameterTypes();
+		} else {
+			Constructor<?> constructor = (Constructor<?>) member;
+			logicalParams = constructor.getGenericParameterTypes();
+			// JDK bug: different methods see / don't see generated args for nested classes
+			// http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=5087240
+			Class<?>[] compilerParams = constructor.getParameterTypes();
+			if (compilerParams.length > logicalParams.length) {
+				Type[] tmp = new Type[compilerParams.length];
+				System.arraycopy(compilerParams, 0, tmp, 0, compilerParams.length - logicalParams.length);
+				System.arraycopy(logicalParams, 0, tmp, compilerParams.length - logicalParams.length, logicalParams.length);
+				logicalParams = tmp;
+			}
+		}
+		if (logicalParams.length == 0) {
+			return Requestor.EMPTY_DESCRIPTORS;
+		}
+		IObjectDescriptor[] result = new IObjectDescriptor[logicalParams.length];
+		for (int i = 0; i < logicalParams.length; i++) {
+			result[i] = new ObjectDescriptor(logicalParams[i], parameterAnnotations[i]);
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return member.toString();
+	}
+}
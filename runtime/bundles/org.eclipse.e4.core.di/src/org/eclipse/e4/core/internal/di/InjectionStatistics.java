@@ -0,0 +1,309 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.core.internal.di;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects where the injector spends its time. Two sets of counters are kept:
+ * <ul>
+ * <li>per injected class ({@link ClassStatistics}): the number of objects made
+ * and injected with the time taken, and the number of re-injections of tracked
+ * requestors, including those skipped because the arguments did not change;</li>
+ * <li>per object supplier ({@link SupplierStatistics}): the number of
+ * resolution requests, the arguments resolved and the time taken.</li>
+ * </ul>
+ * <p>
+ * Times are inclusive: making an object includes injecting it and making the
+ * objects it depends on, and a supplier's time includes nested injections
+ * triggered while it resolves.
+ * </p>
+ * <p>
+ * Nothing is recorded unless the system property
+ * <code>org.eclipse.e4.core.di.statistics=true</code> is set or
+ * {@link #setEnabled(boolean)} is called.
+ * </p>
+ * This class is for debug only, do not use externally.
+ */
+public final class InjectionStatistics {
+
+	private static volatile boolean enabled = Boolean.getBoolean("org.eclipse.e4.core.di.statistics"); //$NON-NLS-1$
+
+	private static final Map<String, ClassStatistics> classes = new ConcurrentHashMap<>();
+	private static final Map<String, SupplierStatistics> suppliers = new ConcurrentHashMap<>();
+
+	/**
+	 * Counters collected for the objects of a single class.
+	 */
+	public static final class ClassStatistics {
+		final String name;
+		final LongAdder makes = new LongAdder();
+		final LongAdder makeTime = new LongAdder();
+		final LongAdder injections = new LongAdder();
+		final LongAdder injectionTime = new LongAdder();
+		final LongAdder reinjections = new LongAdder();
+		final LongAdder skippedReinjections = new LongAdder();
+
+		ClassStatistics(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return number of objects created by the injector
+		 */
+		public long getMakes() {
+			return makes.sum();
+		}
+
+		/**
+		 * @return total time spent creating objects, in nanoseconds
+		 */
+		public long getMakeTime() {
+			return makeTime.sum();
+		}
+
+		/**
+		 * @return number of times objects were injected, including injection after
+		 *         creation
+		 */
+		public long getInjections() {
+			return injections.sum();
+		}
+
+		/**
+		 * @return total time spent injecting objects, in nanoseconds
+		 */
+		public long getInjectionTime() {
+			return injectionTime.sum();
+		}
+
+		/**
+		 * @return number of times tracked fields or methods were resolved again
+		 *         because a supplier reported a change
+		 */
+		public long getReinjections() {
+			return reinjections.sum();
+		}
+
+		/**
+		 * @return number of re-injections that were not executed because a later
+		 *         change in the same update group superseded them, see
+		 *         {@link org.eclipse.e4.core.di.IInjector#beginUpdates()}
+		 */
+		public long getSkippedReinjections() {
+			return skippedReinjections.sum();
+		}
+
+		/**
+		 * @return time spent creating objects, or injecting them if they were not
+		 *         created by the injector, in nanoseconds
+		 */
+		public long getTotalTime() {
+			long time = makeTime.sum();
+			return time != 0 ? time : injectionTime.sum();
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s: makes=%d (%d ms) injections=%d (%d ms) reinjections=%d (skipped %d)", //$NON-NLS-1$
+					name, getMakes(), TimeUnit.NANOSECONDS.toMillis(getMakeTime()), getInjections(),
+					TimeUnit.NANOSECONDS.toMillis(getInjectionTime()), getReinjections(), getSkippedReinjections());
+		}
+	}
+
+	/**
+	 * Counters collected for a single object supplier class.
+	 */
+	public static final class SupplierStatistics {
+		final String name;
+		final LongAdder resolutions = new LongAdder();
+		final LongAdder arguments = new LongAdder();
+		final LongAdder resolutionTime = new LongAdder();
+
+		SupplierStatistics(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return number of calls to the supplier
+		 */
+		public long getResolutions() {
+			return resolutions.sum();
+		}
+
+		/**
+		 * @return number of arguments the supplier was asked to resolve
+		 */
+		public long getArguments() {
+			return arguments.sum();
+		}
+
+		/**
+		 * @return total time spent in the supplier, in nanoseconds
+		 */
+		public long getResolutionTime() {
+			return resolutionTime.sum();
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s: calls=%d arguments=%d (%d ms)", //$NON-NLS-1$
+					name, getResolutions(), getArguments(), TimeUnit.NANOSECONDS.toMillis(getResolutionTime()));
+		}
+	}
+
+	private InjectionStatistics() {
+		// static access only
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	public static void setEnabled(boolean enable) {
+		enabled = enable;
+	}
+
+	/**
+	 * Discards all collected counters.
+	 */
+	public static void reset() {
+		classes.clear();
+		suppliers.clear();
+	}
+
+	private static ClassStatistics of(Class<?> clazz) {
+		return classes.computeIfAbsent(clazz.getName(), ClassStatistics::new);
+	}
+
+	static void recordMake(Class<?> clazz, long nanos) {
+		ClassStatistics statistics = of(clazz);
+		statistics.makes.increment();
+		statistics.makeTime.add(nanos);
+	}
+
+	static void recordInjection(Class<?> clazz, long nanos) {
+		ClassStatistics statistics = of(clazz);
+		statistics.injections.increment();
+		statistics.injectionTime.add(nanos);
+	}
+
+	static void recordReinjection(Class<?> clazz) {
+		if (clazz != null)
+			of(clazz).reinjections.increment();
+	}
+
+	static void recordSkippedReinjection(Class<?> clazz) {
+		if (clazz != null)
+			of(clazz).skippedReinjections.increment();
+	}
+
+	static void recordResolution(Object supplier, int arguments, long nanos) {
+		SupplierStatistics statistics = suppliers.computeIfAbsent(supplier.getClass().getName(), SupplierStatistics::new);
+		statistics.resolutions.increment();
+		statistics.arguments.add(arguments);
+		statistics.resolutionTime.add(nanos);
+	}
+
+	/**
+	 * @return a snapshot of the counters collected so far, keyed by class name
+	 */
+	public static Map<String, ClassStatistics> getClassStatistics() {
+		return new HashMap<>(classes);
+	}
+
+	/**
+	 * @return a snapshot of the counters collected so far, keyed by supplier class
+	 *         name
+	 */
+	public static Map<String, SupplierStatistics> getSupplierStatistics() {
+		return new HashMap<>(suppliers);
+	}
+
+	/**
+	 * Returns the classes whose objects took the longest to create or inject.
+	 *
+	 * @param limit maximum number of entries to return
+	 * @return statistics sorted by descending total time
+	 */
+	public static List<ClassStatistics> getSlowestClasses(int limit) {
+		return top(classes, Comparator.comparingLong(ClassStatistics::getTotalTime), limit);
+	}
+
+	/**
+	 * Returns the classes whose objects were re-injected most often.
+	 *
+	 * @param limit maximum number of entries to return
+	 * @return statistics sorted by descending re-injection count
+	 */
+	public static List<ClassStatistics> getMostReinjectedClasses(int limit) {
+		return top(classes, Comparator.comparingLong(ClassStatistics::getReinjections), limit);
+	}
+
+	/**
+	 * Returns the suppliers that took the longest to resolve arguments.
+	 *
+	 * @param limit maximum number of entries to return
+	 * @return statistics sorted by descending resolution time
+	 */
+	public static List<SupplierStatistics> getSlowestSuppliers(int limit) {
+		return top(suppliers, Comparator.comparingLong(SupplierStatistics::getResolutionTime), limit);
+	}
+
+	private static <T> List<T> top(Map<String, T> statistics, Comparator<T> comparator, int limit) {
+		List<T> result = new ArrayList<>(statistics.values());
+		result.sort(comparator.reversed());
+		return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+	}
+
+	/**
+	 * Produces a human readable report of the collected counters.
+	 *
+	 * @param limit maximum number of entries to list per section
+	 * @return the report
+	 */
+	public static String dump(int limit) {
+		StringBuilder result = new StringBuilder();
+		result.append("Slowest classes:\n"); //$NON-NLS-1$
+		for (ClassStatistics statistics : getSlowestClasses(limit)) {
+			result.append('\t').append(statistics).append('\n');
+		}
+		result.append("Most re-injected classes:\n"); //$NON-NLS-1$
+		for (ClassStatistics statistics : getMostReinjectedClasses(limit)) {
+			if (statistics.getReinjections() == 0)
+				break;
+			result.append('\t').append(statistics).append('\n');
+		}
+		result.append("Suppliers:\n"); //$NON-NLS-1$
+		for (SupplierStatistics statistics : getSlowestSuppliers(limit)) {
+			result.append('\t').append(statistics).append('\n');
+		}
+		return result.toString();
+	}
+}
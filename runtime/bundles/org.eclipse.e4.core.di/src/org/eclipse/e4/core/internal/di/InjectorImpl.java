@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2017 IBM Corporation and others.
+ * Copyright (c) 2009, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,33 +16,28 @@
 package org.eclipse.e4.core.internal.di;
 
 import java.lang.annotation.Annotation;
-import java.lang.ref.WeakReference;
-import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.security.CodeSource;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.WeakHashMap;
-import java.util.stream.Stream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
-import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
-import javax.inject.Singleton;
 import org.eclipse.e4.core.di.IBinding;
 import org.eclipse.e4.core.di.IInjector;
 import org.eclipse.e4.core.di.InjectionException;
@@ -53,8 +48,6 @@ import org.eclipse.e4.core.di.suppliers.IObjectDescriptor;
 import org.eclipse.e4.core.di.suppliers.IRequestor;
 import org.eclipse.e4.core.di.suppliers.PrimaryObjectSupplier;
 import org.eclipse.e4.core.internal.di.osgi.LogHelper;
-import org.osgi.framework.Bundle;
-import org.osgi.framework.FrameworkUtil;
 
 /**
  * Reflection-based dependency injector.
@@ -63,8 +56,6 @@ public class InjectorImpl implements IInjector {
 
 	final static private boolean shouldDebug = Boolean.getBoolean("org.eclipse.e4.core.di.debug"); //$NON-NLS-1$
 
-	final static private String JAVA_OBJECT = "java.lang.Object"; //$NON-NLS-1$
-
 	final private static Boolean DEFAULT_BOOLEAN = Boolean.FALSE;
 	final private static Integer DEFAULT_INTEGER = Integer.valueOf(0);
 	final private static Character DEFAULT_CHAR = Character.valueOf((char) 0);
@@ -74,19 +65,64 @@ public class InjectorImpl implements IInjector {
 	final private static Short DEFAULT_SHORT = Short.valueOf((short) 0);
 	final private static Byte DEFAULT_BYTE = Byte.valueOf((byte) 0);
 
-	private Map<PrimaryObjectSupplier, List<WeakReference<?>>> injectedObjects = new HashMap<>();
-	private Set<WeakReference<Class<?>>> injectedClasses = new HashSet<>();
-	private HashMap<Class<?>, Object> singletonCache = new HashMap<>();
+	private Map<PrimaryObjectSupplier, WeakIdentitySet> injectedObjects = new ConcurrentHashMap<>();
+	private ClassValue<AtomicBoolean> injectedStatics = new ClassValue<AtomicBoolean>() {
+		@Override
+		protected AtomicBoolean computeValue(Class<?> type) {
+			return new AtomicBoolean();
+		}
+	};
+	/** singleton instances, or the {@link SingletonCreation} while an instance is created */
+	private final Map<Class<?>, Object> singletonCache = new ConcurrentHashMap<>();
+	/** the creation each thread waits for; guarded by itself */
+	private final Map<Thread, SingletonCreation> singletonWaits = new HashMap<>();
 	private Map<Class<?>, Set<Binding>> bindings = new HashMap<>();
-	private Map<Class<? extends Annotation>, Map<AnnotatedElement, Boolean>> annotationsPresent = new HashMap<>();
+	private volatile int bindingsGeneration;
+
+	private final ThreadLocal<Set<Class<?>>> classesBeingCreated = ThreadLocal.withInitial(() -> new HashSet<>(5));
+
+	private final ThreadLocal<UpdateGroup> updateGroups = new ThreadLocal<>();
+
+	/**
+	 * Re-injections deferred on one thread until the outermost update group
+	 * ends, see {@link IInjector#beginUpdates()}.
+	 */
+	private static final class UpdateGroup {
+		int depth;
+		final Map<Requestor<?>, Boolean> pending = new IdentityHashMap<>();
+		/** pending requestors in the order they were first deferred */
+		final List<Requestor<?>> order = new ArrayList<>();
+	}
+
+	/**
+	 * A singleton being created by the owner thread.
+	 */
+	private static final class SingletonCreation {
+		final Class<?> clazz;
+		final Thread owner = Thread.currentThread();
+		private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+		SingletonCreation(Class<?> clazz) {
+			this.clazz = clazz;
+		}
+
+		/**
+		 * @param instance the new instance, or <code>null</code> if the creation failed
+		 */
+		void complete(Object instance) {
+			result.complete(instance);
+		}
 
-	// Performance improvement:
-	private Map<Class<?>, Method[]> methodsCache = Collections.synchronizedMap(new WeakHashMap<>());
-	private Map<Class<?>, Field[]> fieldsCache = Collections.synchronizedMap(new WeakHashMap<>());
-	private Map<Class<?>, Constructor<?>[]> constructorsCache = Collections.synchronizedMap(new WeakHashMap<>());
-	private Map<Class<?>, Map<Method, Boolean>> isOverriddenCache = Collections.synchronizedMap(new WeakHashMap<>());
+		/**
+		 * @return the new instance, or <code>null</code> if the creation failed
+		 */
+		Object await() {
+			return result.join();
+		}
+	}
 
-	private Set<Class<?>> classesBeingCreated = new HashSet<>(5);
+	/** Cleared once extended suppliers turn out to be unavailable */
+	private static volatile boolean osgiPresent = true;
 
 	private PrimaryObjectSupplier defaultSupplier;
 
@@ -111,6 +147,8 @@ public class InjectorImpl implements IInjector {
 
 	private void internalInject(Object object, PrimaryObjectSupplier objectSupplier,
 			PrimaryObjectSupplier tempSupplier) {
+		boolean profile = InjectionStatistics.isEnabled();
+		long start = profile ? System.nanoTime() : 0;
 		// Two stages: first, go and collect {requestor, descriptor[] }
 		ArrayList<Requestor<?>> requestors = new ArrayList<>();
 		processClassHierarchy(object, objectSupplier, tempSupplier, true /* track */, true /* normal order */, requestors);
@@ -137,60 +175,28 @@ public class InjectorImpl implements IInjector {
 
 		// We call @PostConstruct after injection. This means that is is called
 		// as a part of both #make() and #inject().
-		processAnnotated(PostConstruct.class, object, object.getClass(), objectSupplier, tempSupplier, new ArrayList<>(5));
+		processAnnotated(PostConstruct.class, object, objectSupplier, tempSupplier);
 
 		// remove references to the temporary suppliers
 		for (Requestor<?> requestor : requestors) {
 			requestor.clearTempSupplier();
 		}
+		if (profile)
+			InjectionStatistics.recordInjection(object.getClass(), System.nanoTime() - start);
 	}
 
 	private void rememberInjectedObject(Object object, PrimaryObjectSupplier objectSupplier) {
-		synchronized (injectedObjects) {
-			List<WeakReference<?>> list;
-			if (!injectedObjects.containsKey(objectSupplier)) {
-				list = new ArrayList<>();
-				injectedObjects.put(objectSupplier, list);
-			} else
-				list = injectedObjects.get(objectSupplier);
-			for (WeakReference<?> ref : list) {
-				if (object == ref.get())
-					return; // we already have it
-			}
-			list.add(new WeakReference<>(object));
-		}
+		injectedObjects.computeIfAbsent(objectSupplier, supplier -> new WeakIdentitySet()).add(object);
 	}
 
-	private boolean forgetInjectedObject(Object object, PrimaryObjectSupplier objectSupplier) {
-		synchronized (injectedObjects) {
-			if (!injectedObjects.containsKey(objectSupplier))
-				return false;
-			List<WeakReference<?>> list = injectedObjects.get(objectSupplier);
-			for (Iterator<WeakReference<?>> i = list.iterator(); i.hasNext();) {
-				WeakReference<?> ref = i.next();
-				if (object == ref.get()) {
-					i.remove();
-					return true;
-				}
-			}
-			return false;
-		}
-	}
-
-	private List<WeakReference<?>> forgetSupplier(PrimaryObjectSupplier objectSupplier) {
-		synchronized (injectedObjects) {
-			if (!injectedObjects.containsKey(objectSupplier))
-				return null;
-			return injectedObjects.remove(objectSupplier);
-		}
+	private boolean isInjected(Object object, PrimaryObjectSupplier objectSupplier) {
+		WeakIdentitySet objects = injectedObjects.get(objectSupplier);
+		return objects != null && objects.contains(object);
 	}
 
-	private List<WeakReference<?>> getSupplierObjects(PrimaryObjectSupplier objectSupplier) {
-		synchronized (injectedObjects) {
-			if (!injectedObjects.containsKey(objectSupplier))
-				return null;
-			return injectedObjects.get(objectSupplier);
-		}
+	private boolean forgetInjectedObject(Object object, PrimaryObjectSupplier objectSupplier) {
+		WeakIdentitySet objects = injectedObjects.get(objectSupplier);
+		return objects != null && objects.remove(object);
 	}
 
 	@Override
@@ -198,7 +204,7 @@ public class InjectorImpl implements IInjector {
 		try {
 			if (!forgetInjectedObject(object, objectSupplier))
 				return; // not injected at this time
-			processAnnotated(PreDestroy.class, object, object.getClass(), objectSupplier, null, new ArrayList<>(5));
+			processAnnotated(PreDestroy.class, object, objectSupplier, null);
 
 			ArrayList<Requestor<?>> requestors = new ArrayList<>();
 			processClassHierarchy(object, objectSupplier, null, true /* track */, false /* inverse order */, requestors);
@@ -299,10 +305,7 @@ public class InjectorImpl implements IInjector {
 	private Object invokeUsingClass(Object userObject, Class<?> currentClass, Class<? extends Annotation> qualifier,
 			Object defaultValue, PrimaryObjectSupplier objectSupplier, PrimaryObjectSupplier tempSupplier,
 			boolean throwUnresolved, boolean initial, boolean track) {
-		Method[] methods = getDeclaredMethods(currentClass);
-		for (Method method : methods) {
-			if (method.getAnnotation(qualifier) == null)
-				continue;
+		for (InjectionPoint<Method> method : InjectionPlan.of(currentClass).getDeclaredMethods(qualifier)) {
 			MethodRequestor requestor = new MethodRequestor(method, this, objectSupplier, tempSupplier, userObject,
 					track);
 
@@ -345,81 +348,150 @@ public class InjectorImpl implements IInjector {
 	}
 
 	public Object makeFromProvider(IObjectDescriptor descriptor, PrimaryObjectSupplier objectSupplier) {
-		Binding binding = findBinding(descriptor);
-		Class<?> implementationClass;
-		if (binding == null)
-			implementationClass = getProviderType(descriptor.getDesiredType());
-		else
-			implementationClass = binding.getImplementationClass();
+		Class<?> implementationClass = getProviderImplementation(descriptor);
+		return makeFromProvider(implementationClass, new IObjectDescriptor[] {new ObjectDescriptor(implementationClass, null)}, objectSupplier);
+	}
+
+	/**
+	 * @param implementationDescriptors a single descriptor of the implementation class
+	 */
+	Object makeFromProvider(Class<?> implementationClass, IObjectDescriptor[] implementationDescriptors, PrimaryObjectSupplier objectSupplier) {
 		if (objectSupplier != null) {
-			IObjectDescriptor actualClass = new ObjectDescriptor(implementationClass, null);
 			Object[] actualArgs = new Object[] {IInjector.NOT_A_VALUE};
-			objectSupplier.get(new IObjectDescriptor[] {actualClass}, actualArgs, null, false, true, false);
+			objectSupplier.get(implementationDescriptors, actualArgs, null, false, true, false);
 			if (actualArgs[0] != IInjector.NOT_A_VALUE)
 				return actualArgs[0];
 		}
 		return internalMake(implementationClass, objectSupplier, null);
 	}
 
+	/**
+	 * @return the class to create for the given <code>Provider&lt;T&gt;</code>
+	 *         descriptor; valid until the bindings change, see
+	 *         {@link #getBindingsGeneration()}
+	 */
+	Class<?> getProviderImplementation(IObjectDescriptor descriptor) {
+		Binding binding = findBinding(descriptor);
+		if (binding == null)
+			return getProviderType(descriptor);
+		return binding.getImplementationClass();
+	}
+
+	/**
+	 * @return a number that changes whenever a binding is added
+	 */
+	int getBindingsGeneration() {
+		return bindingsGeneration;
+	}
+
 	private Object internalMake(Class<?> clazz, PrimaryObjectSupplier objectSupplier, PrimaryObjectSupplier tempSupplier) {
+		Set<Class<?>> classesBeingCreated = shouldDebug ? this.classesBeingCreated.get() : null;
 		if (shouldDebug && classesBeingCreated.contains(clazz))
 			LogHelper.logWarning("Possible recursive reference trying to create class \"" + clazz.getName() + "\".", null); //$NON-NLS-1$ //$NON-NLS-2$
 		try {
 			if (shouldDebug)
 				classesBeingCreated.add(clazz);
 
-			boolean isSingleton = isAnnotationPresent(clazz, Singleton.class);
-			if (isSingleton) {
-				synchronized (singletonCache) {
-					if (singletonCache.containsKey(clazz))
-						return singletonCache.get(clazz);
-				}
-			}
+			InjectionPlan plan = InjectionPlan.of(clazz);
+			if (plan.isSingleton())
+				return makeSingleton(clazz, plan, objectSupplier, tempSupplier);
+			return construct(clazz, plan, objectSupplier, tempSupplier);
+		} catch (NoClassDefFoundError | NoSuchMethodError e) {
+			throw new InjectionException(e);
+		} finally {
+			if (shouldDebug)
+				classesBeingCreated.remove(clazz);
+		}
+	}
 
-			Constructor<?>[] constructors = getDeclaredConstructors(clazz);
-			// Sort the constructors by descending number of constructor arguments
-			ArrayList<Constructor<?>> sortedConstructors = new ArrayList<>(constructors.length);
-			sortedConstructors.addAll(Arrays.asList(constructors));
-			sortedConstructors.sort(Comparator.comparing(c -> c.getParameterTypes().length, Comparator.reverseOrder()));
+	private Object construct(Class<?> clazz, InjectionPlan plan, PrimaryObjectSupplier objectSupplier, PrimaryObjectSupplier tempSupplier) {
+		boolean profile = InjectionStatistics.isEnabled();
+		long start = profile ? System.nanoTime() : 0;
+		// constructors are sorted by descending number of arguments
+		for (InjectionPoint<Constructor<?>> constructor : plan.getConstructors()) {
+			ConstructorRequestor requestor = new ConstructorRequestor(constructor, this, objectSupplier, tempSupplier);
+			Object[] actualArgs = resolveArgs(requestor, objectSupplier, tempSupplier, false, true, false);
+			if (unresolved(actualArgs) != -1)
+				continue;
+			requestor.setResolvedArgs(actualArgs);
 
-			for (Constructor<?> constructor : sortedConstructors) {
-				// skip private and protected constructors; allow public and package visibility
-				int modifiers = constructor.getModifiers();
-				if (((modifiers & Modifier.PRIVATE) != 0) || ((modifiers & Modifier.PROTECTED) != 0))
-					continue;
+			Object newInstance = requestor.execute();
+			if (newInstance != null) {
+				internalInject(newInstance, objectSupplier, tempSupplier);
+				if (profile)
+					InjectionStatistics.recordMake(clazz, System.nanoTime() - start);
+				return newInstance;
+			}
+		}
+		throw new InjectionException("Could not find satisfiable constructor in " + clazz.getName()); //$NON-NLS-1$
+	}
 
-				// unless this is the default constructor, it has to be tagged
-				if (!isAnnotationPresent(constructor, Inject.class) && constructor.getParameterTypes().length != 0)
-					continue;
+	/**
+	 * Returns the singleton instance of the class, creating it once. Threads asking
+	 * for a singleton that is being created wait for it, while different
+	 * singletons are created in parallel. If the creation fails, the next request
+	 * tries again.
+	 */
+	private Object makeSingleton(Class<?> clazz, InjectionPlan plan, PrimaryObjectSupplier objectSupplier, PrimaryObjectSupplier tempSupplier) {
+		while (true) {
+			Object cached = singletonCache.get(clazz);
+			if (cached != null && !(cached instanceof SingletonCreation))
+				return cached;
+			if (cached == null) {
+				SingletonCreation creation = new SingletonCreation(clazz);
+				cached = singletonCache.putIfAbsent(clazz, creation);
+				if (cached == null)
+					return createSingleton(creation, plan, objectSupplier, tempSupplier);
+				if (!(cached instanceof SingletonCreation))
+					return cached;
+			}
+			Object instance = awaitSingleton((SingletonCreation) cached);
+			if (instance != null)
+				return instance;
+			// the creation failed, try again
+		}
+	}
 
-				ConstructorRequestor requestor = new ConstructorRequestor(constructor, this, objectSupplier, tempSupplier);
-				Object[] actualArgs = resolveArgs(requestor, objectSupplier, tempSupplier, false, true, false);
-				if (unresolved(actualArgs) != -1)
-					continue;
-				requestor.setResolvedArgs(actualArgs);
+	private Object createSingleton(SingletonCreation creation, InjectionPlan plan, PrimaryObjectSupplier objectSupplier, PrimaryObjectSupplier tempSupplier) {
+		Object instance = null;
+		try {
+			instance = construct(creation.clazz, plan, objectSupplier, tempSupplier);
+			singletonCache.put(creation.clazz, instance);
+			return instance;
+		} finally {
+			if (instance == null)
+				singletonCache.remove(creation.clazz, creation);
+			creation.complete(instance);
+		}
+	}
 
-				Object newInstance = requestor.execute();
-				if (newInstance != null) {
-					internalInject(newInstance, objectSupplier, tempSupplier);
-					if (isSingleton) {
-						synchronized (singletonCache) { // TBD this is not quite right, synch the method
-							singletonCache.put(clazz, newInstance);
-						}
-					}
-					return newInstance;
-				}
+	private Object awaitSingleton(SingletonCreation creation) {
+		Thread current = Thread.currentThread();
+		// check and register at once, so two threads cannot both miss their cycle
+		synchronized (singletonWaits) {
+			// a cycle exists if the creating thread is, directly or indirectly, waiting for us
+			for (SingletonCreation awaited = creation; awaited != null; awaited = singletonWaits.get(awaited.owner)) {
+				if (awaited.owner == current)
+					throw new InjectionException("Circular dependency trying to create singleton \"" + creation.clazz.getName() + "\""); //$NON-NLS-1$ //$NON-NLS-2$
 			}
-			throw new InjectionException("Could not find satisfiable constructor in " + clazz.getName()); //$NON-NLS-1$
-		} catch (NoClassDefFoundError | NoSuchMethodError e) {
-			throw new InjectionException(e);
+			singletonWaits.put(current, creation);
+		}
+		try {
+			return creation.await();
 		} finally {
-			if (shouldDebug)
-				classesBeingCreated.remove(clazz);
+			synchronized (singletonWaits) {
+				singletonWaits.remove(current);
+			}
 		}
 	}
 
 	public void resolveArguments(IRequestor requestor, boolean initial) {
 		Requestor<?> internalRequestor = ((Requestor<?>) requestor);
+		if (!initial && InjectionStatistics.isEnabled())
+			InjectionStatistics.recordReinjection(internalRequestor.getRequestingObjectClass());
+		UpdateGroup group = initial ? null : updateGroups.get();
+		if (group != null)
+			internalRequestor.setResolvedArgs(null); // don't keep values of an earlier deferred update
 		Object[] actualArgs = resolveArgs(internalRequestor, internalRequestor.getPrimarySupplier(), internalRequestor.getTempSupplier(), false, initial, internalRequestor.shouldTrack());
 		int unresolved = unresolved(actualArgs);
 		if (unresolved == -1)
@@ -430,28 +502,107 @@ public class InjectorImpl implements IInjector {
 			String msg = resolutionError(internalRequestor, unresolved);
 			LogHelper.logError(msg, null);
 		}
+		if (group != null) {
+			if (group.pending.put(internalRequestor, Boolean.TRUE) == null)
+				group.order.add(internalRequestor);
+			else if (InjectionStatistics.isEnabled())
+				InjectionStatistics.recordSkippedReinjection(internalRequestor.getRequestingObjectClass());
+			internalRequestor.deferExecution();
+		}
 	}
 
-	public void disposed(PrimaryObjectSupplier objectSupplier) {
-		List<WeakReference<?>> references = getSupplierObjects(objectSupplier);
-		if (references == null)
+	/**
+	 * Resolves the arguments of a one-off delivery, see
+	 * {@link Requestor#resolveDelivery()}. Unlike
+	 * {@link #resolveArguments(IRequestor, boolean)} the arguments are neither
+	 * stored in the requestor nor deferred by an update group.
+	 *
+	 * @return the arguments, or <code>null</code> if they could not be resolved
+	 */
+	Object[] resolveDelivery(Requestor<?> requestor) {
+		if (InjectionStatistics.isEnabled())
+			InjectionStatistics.recordReinjection(requestor.getRequestingObjectClass());
+		Object[] actualArgs = resolveArgs(requestor, requestor.getPrimarySupplier(), requestor.getTempSupplier(), false, false, requestor.shouldTrack(), true);
+		int unresolved = unresolved(actualArgs);
+		if (unresolved == -1)
+			return actualArgs;
+		if (!requestor.isOptional())
+			LogHelper.logError(resolutionError(requestor, unresolved), null);
+		return null;
+	}
+
+	@Override
+	public void beginUpdates() {
+		UpdateGroup group = updateGroups.get();
+		if (group == null) {
+			group = new UpdateGroup();
+			updateGroups.set(group);
+		}
+		group.depth++;
+	}
+
+	@Override
+	public void endUpdates() {
+		UpdateGroup group = updateGroups.get();
+		if (group == null)
+			throw new IllegalStateException("No update group was started on this thread"); //$NON-NLS-1$
+		if (--group.depth > 0)
 			return;
-		Object[] objects = new Object[references.size()];
-		int count = 0;
-		for (WeakReference<?> ref : references) {
-			Object object = ref.get();
-			if (object != null) {
-				objects[count] = object;
-				count++;
+		// updates injected from here on trigger further updates immediately
+		updateGroups.remove();
+		RuntimeException failure = null;
+		for (Requestor<?> requestor : group.order) {
+			Object object = requestor.getRequestingObject();
+			if (object == null || !isInjected(object, requestor.getPrimarySupplier()))
+				continue;
+			try {
+				requestor.executeDeferred();
+			} catch (RuntimeException e) {
+				if (failure == null)
+					failure = e;
 			}
 		}
-		for (int i = 0; i < count; i++) {
-			Object object = objects[i];
+		if (failure != null)
+			throw failure;
+	}
+
+	public void disposed(PrimaryObjectSupplier objectSupplier) {
+		WeakIdentitySet references = injectedObjects.get(objectSupplier);
+		if (references == null)
+			return;
+		List<CompletableFuture<Void>> concurrent = null;
+		for (Object object : references.getSafeCopy()) {
 			if (!forgetInjectedObject(object, objectSupplier))
 				continue; // not injected at this time
-			processAnnotated(PreDestroy.class, object, object.getClass(), objectSupplier, null, new ArrayList<>(5));
+			if (InjectionPlan.of(object.getClass()).isConcurrentPreDestroy()) {
+				if (concurrent == null)
+					concurrent = new ArrayList<>();
+				concurrent.add(CompletableFuture.runAsync(() -> processAnnotated(PreDestroy.class, object, objectSupplier, null)));
+				continue;
+			}
+			processAnnotated(PreDestroy.class, object, objectSupplier, null);
 		}
-		forgetSupplier(objectSupplier);
+		if (concurrent != null)
+			awaitPreDestroy(concurrent);
+		injectedObjects.remove(objectSupplier);
+	}
+
+	private void awaitPreDestroy(List<CompletableFuture<Void>> concurrent) {
+		Throwable failure = null;
+		for (CompletableFuture<Void> future : concurrent) {
+			try {
+				future.join();
+			} catch (CompletionException e) {
+				if (failure == null)
+					failure = e.getCause();
+			}
+		}
+		if (failure instanceof RuntimeException)
+			throw (RuntimeException) failure;
+		if (failure instanceof Error)
+			throw (Error) failure;
+		if (failure != null)
+			throw new InjectionException(failure);
 	}
 
 	private void resolveRequestorArgs(ArrayList<Requestor<?>> requestors, PrimaryObjectSupplier objectSupplier, PrimaryObjectSupplier tempSupplier, boolean uninject, boolean initial, boolean track) {
@@ -489,10 +640,19 @@ public class InjectorImpl implements IInjector {
 	}
 
 	private Object[] resolveArgs(Requestor<?> requestor, PrimaryObjectSupplier objectSupplier, PrimaryObjectSupplier tempSupplier, boolean uninject, boolean initial, boolean track) {
+		return resolveArgs(requestor, objectSupplier, tempSupplier, uninject, initial, track, false);
+	}
+
+	/**
+	 * @param delivery <code>true</code> if a supplier delivers a one-off value,
+	 *                 see {@link #resolveDelivery(Requestor)}
+	 */
+	private Object[] resolveArgs(Requestor<?> requestor, PrimaryObjectSupplier objectSupplier, PrimaryObjectSupplier tempSupplier, boolean uninject, boolean initial, boolean track, boolean delivery) {
 		/* Special indicator for ExtendedObjectSuppliers not having a value */
 		final Object EOS_NOT_A_VALUE = new Object();
 
 		IObjectDescriptor[] descriptors = requestor.getDependentObjects();
+		boolean profile = InjectionStatistics.isEnabled();
 
 		// Resolution order changed in 1.4 as we now check extended suppliers first (bug 398728)
 
@@ -502,41 +662,61 @@ public class InjectorImpl implements IInjector {
 
 		// 1) check if we have a Provider<T>
 		for (int i = 0; i < actualArgs.length; i++) {
-			Class<?> providerClass = getProviderType(descriptors[i].getDesiredType());
+			Class<?> providerClass = getProviderType(descriptors[i]);
 			if (providerClass == null)
 				continue;
-			actualArgs[i] = new ProviderImpl<Class<?>>(descriptors[i], this, objectSupplier);
+			actualArgs[i] = requestor.getProvider(i, objectSupplier);
 		}
 
 		// 2) try extended suppliers
+		int extended = 0;
 		for (int i = 0; i < actualArgs.length; i++) {
 			if (actualArgs[i] != NOT_A_VALUE)
 				continue; // already resolved
 			ExtendedObjectSupplier extendedSupplier = findExtendedSupplier(descriptors[i]);
 			if (extendedSupplier == null)
 				continue;
+			long start = profile ? System.nanoTime() : 0;
 			actualArgs[i] = extendedSupplier.get(descriptors[i], requestor, requestor.shouldTrack() && track, requestor.shouldGroupUpdates());
+			if (profile)
+				InjectionStatistics.recordResolution(extendedSupplier, 1, System.nanoTime() - start);
 			if (actualArgs[i] == NOT_A_VALUE) {
 				// Use special marker to prevent these annotated arguments from being resolved using temporary and primary suppliers
 				actualArgs[i] = EOS_NOT_A_VALUE;
+			} else {
+				extended++;
 			}
 		}
 
-		// 3) use the temporary supplier
-		if (tempSupplier != null)
-			tempSupplier.get(descriptors, actualArgs, requestor, initial, false /* no tracking */, requestor.shouldGroupUpdates());
+		// An event delivered to a method or field taking only the event leaves
+		// nothing to do for the remaining suppliers
+		boolean supplied = delivery && actualArgs.length == 1 && extended == 1;
 
-		// 4) use the primary supplier
-		if (objectSupplier != null)
-			objectSupplier.get(descriptors, actualArgs, requestor, initial, requestor.shouldTrack() && track, requestor.shouldGroupUpdates());
+		if (!supplied) {
+			// 3) use the temporary supplier
+			if (tempSupplier != null) {
+				long start = profile ? System.nanoTime() : 0;
+				tempSupplier.get(descriptors, actualArgs, requestor, initial, false /* no tracking */, requestor.shouldGroupUpdates());
+				if (profile)
+					InjectionStatistics.recordResolution(tempSupplier, descriptors.length, System.nanoTime() - start);
+			}
 
-		// 5) try the bindings
-		for (int i = 0; i < actualArgs.length; i++) {
-			if (actualArgs[i] != NOT_A_VALUE)
-				continue; // already resolved
-			Binding binding = findBinding(descriptors[i]);
-			if (binding != null)
-				actualArgs[i] = internalMake(binding.getImplementationClass(), objectSupplier, tempSupplier);
+			// 4) use the primary supplier
+			if (objectSupplier != null) {
+				long start = profile ? System.nanoTime() : 0;
+				objectSupplier.get(descriptors, actualArgs, requestor, initial, requestor.shouldTrack() && track, requestor.shouldGroupUpdates());
+				if (profile)
+					InjectionStatistics.recordResolution(objectSupplier, descriptors.length, System.nanoTime() - start);
+			}
+
+			// 5) try the bindings
+			for (int i = 0; i < actualArgs.length; i++) {
+				if (actualArgs[i] != NOT_A_VALUE)
+					continue; // already resolved
+				Binding binding = findBinding(descriptors[i]);
+				if (binding != null)
+					actualArgs[i] = internalMake(binding.getImplementationClass(), objectSupplier, tempSupplier);
+			}
 		}
 
 		// 5) create simple classes (implied bindings) - unless we uninject or optional
@@ -617,7 +797,7 @@ public class InjectorImpl implements IInjector {
 
 	private ExtendedObjectSupplier findExtendedSupplier(IObjectDescriptor descriptor) {
 		Annotation[] qualifiers = descriptor.getQualifiers();
-		if (qualifiers == null)
+		if (qualifiers == null || !osgiPresent)
 			return null;
 		for (Annotation qualifier : qualifiers) {
 			Class<?> type = qualifier.annotationType();
@@ -628,6 +808,7 @@ public class InjectorImpl implements IInjector {
 				// use qualified name to refer to a class that might be missing
 				supplier = org.eclipse.e4.core.internal.di.osgi.ProviderHelper.findProvider(key, defaultSupplier);
 			} catch (NoClassDefFoundError e) {
+				osgiPresent = false;
 				return null; // OSGi framework not present
 			}
 			if (supplier != null)
@@ -644,205 +825,39 @@ public class InjectorImpl implements IInjector {
 		return -1;
 	}
 
-	private void processClassHierarchy(Object userObject, PrimaryObjectSupplier objectSupplier, PrimaryObjectSupplier tempSupplier, boolean track, boolean normalOrder, List<Requestor<?>> requestors) {
-		processClass(userObject, objectSupplier, tempSupplier, (userObject == null) ? null : userObject.getClass(), new ArrayList<>(5), track, normalOrder, requestors);
-	}
-
 	/**
-	 * Make the processor visit all declared members on the given class and all superclasses
+	 * Collects requestors for the injected fields and methods of the object's
+	 * class hierarchy, superclasses first. Static members are only injected for
+	 * the first object of a class.
 	 */
-	private void processClass(Object userObject, PrimaryObjectSupplier objectSupplier, PrimaryObjectSupplier tempSupplier, Class<?> objectsClass, ArrayList<Class<?>> classHierarchy, boolean track, boolean normalOrder, List<Requestor<?>> requestors) {
-		// order: superclass, fields, methods
-		if (objectsClass != null) {
-			Class<?> superClass = objectsClass.getSuperclass();
-			if (superClass != null && !superClass.getName().equals(JAVA_OBJECT)) {
-				classHierarchy.add(objectsClass);
-				processClass(userObject, objectSupplier, tempSupplier, superClass, classHierarchy, track, normalOrder, requestors);
-				classHierarchy.remove(objectsClass);
-			}
-		}
-		boolean injectedStaticFields;
-		boolean injectedStaticMethods;
-		if (normalOrder) {
-			injectedStaticFields = processFields(userObject, objectSupplier, tempSupplier, objectsClass, track, requestors);
-			injectedStaticMethods = processMethods(userObject, objectSupplier, tempSupplier, objectsClass, classHierarchy, track, requestors);
-		} else {
-			injectedStaticMethods = processMethods(userObject, objectSupplier, tempSupplier, objectsClass, classHierarchy, track, requestors);
-			injectedStaticFields = processFields(userObject, objectSupplier, tempSupplier, objectsClass, track, requestors);
-		}
-		if (injectedStaticFields || injectedStaticMethods)
-			rememberInjectedStatic(objectsClass);
-	}
-
-	private boolean hasInjectedStatic(Class<?> objectsClass) {
-		synchronized (injectedClasses) {
-			for (WeakReference<Class<?>> ref : injectedClasses) {
-				Class<?> injectedClass = ref.get();
-				if (injectedClass == null)
-					continue;
-				if (injectedClass == objectsClass) // use pointer comparison
-					return true;
+	private void processClassHierarchy(Object userObject, PrimaryObjectSupplier objectSupplier, PrimaryObjectSupplier tempSupplier, boolean track, boolean normalOrder, List<Requestor<?>> requestors) {
+		for (InjectionPlan.Level level : InjectionPlan.of(userObject.getClass()).getLevels()) {
+			// the first object of the class claims the injection of static members
+			boolean skipStatic = level.hasStatic && !injectedStatics.get(level.type).compareAndSet(false, true);
+			if (normalOrder) {
+				addFieldRequestors(level.fields, skipStatic, userObject, objectSupplier, tempSupplier, track, requestors);
+				addMethodRequestors(level.methods, skipStatic, userObject, objectSupplier, tempSupplier, track, requestors);
+			} else {
+				addMethodRequestors(level.methods, skipStatic, userObject, objectSupplier, tempSupplier, track, requestors);
+				addFieldRequestors(level.fields, skipStatic, userObject, objectSupplier, tempSupplier, track, requestors);
 			}
-			return false;
 		}
 	}
 
-	private void rememberInjectedStatic(Class<?> objectsClass) {
-		synchronized (injectedClasses) {
-			injectedClasses.add(new WeakReference<>(objectsClass));
-		}
-	}
-
-	/**
-	 * Make the processor visit all declared fields on the given class.
-	 */
-	private boolean processFields(Object userObject, PrimaryObjectSupplier objectSupplier, PrimaryObjectSupplier tempSupplier, Class<?> objectsClass, boolean track, List<Requestor<?>> requestors) {
-		boolean injectedStatic = false;
-		Field[] fields = getDeclaredFields(objectsClass);
-		for (Field field : fields) {
-			if (Modifier.isStatic(field.getModifiers())) {
-				if (hasInjectedStatic(objectsClass))
-					continue;
-				injectedStatic = true;
-			}
-			if (!isAnnotationPresent(field, Inject.class))
+	private void addFieldRequestors(List<InjectionPoint<Field>> fields, boolean skipStatic, Object userObject, PrimaryObjectSupplier objectSupplier, PrimaryObjectSupplier tempSupplier, boolean track, List<Requestor<?>> requestors) {
+		for (InjectionPoint<Field> field : fields) {
+			if (field.isStatic && skipStatic)
 				continue;
 			requestors.add(new FieldRequestor(field, this, objectSupplier, tempSupplier, userObject, track));
 		}
-		return injectedStatic;
 	}
 
-	/**
-	 * Make the processor visit all declared methods on the given class.
-	 */
-	private boolean processMethods(final Object userObject, PrimaryObjectSupplier objectSupplier,
-			PrimaryObjectSupplier tempSupplier, Class<?> objectsClass, ArrayList<Class<?>> classHierarchy,
-			boolean track, List<Requestor<?>> requestors) {
-		boolean injectedStatic = false;
-		Method[] methods = getDeclaredMethods(objectsClass);
-		for (Method method : methods) {
-
-			Boolean isOverridden = null;
-			Map<Method, Boolean> methodMap = null;
-			Class<?> originalClass = userObject.getClass();
-			methodMap = isOverriddenCache.get(originalClass);
-			if (methodMap != null) {
-				isOverridden = methodMap.get(method);
-			}
-			if (isOverridden == null) {
-				isOverridden = isOverridden(method, classHierarchy);
-				if (methodMap == null) {
-					methodMap = Collections.synchronizedMap(new WeakHashMap<>());
-					isOverriddenCache.put(originalClass, methodMap);
-				}
-				methodMap.put(method, isOverridden);
-			}
-
-			if (isOverridden) {
-				continue; // process in the subclass
-			}
-			if (Modifier.isStatic(method.getModifiers())) {
-				if (hasInjectedStatic(objectsClass)) {
-					continue;
-				}
-				injectedStatic = true;
-			}
-			if (!isAnnotationPresent(method, Inject.class)) {
+	private void addMethodRequestors(List<InjectionPoint<Method>> methods, boolean skipStatic, Object userObject, PrimaryObjectSupplier objectSupplier, PrimaryObjectSupplier tempSupplier, boolean track, List<Requestor<?>> requestors) {
+		for (InjectionPoint<Method> method : methods) {
+			if (method.isStatic && skipStatic)
 				continue;
-			}
 			requestors.add(new MethodRequestor(method, this, objectSupplier, tempSupplier, userObject, track));
 		}
-		return injectedStatic;
-	}
-
-	/**
-	 * Checks if a given method is overridden with an injectable method.
-	 */
-	private boolean isOverridden(Method method, ArrayList<Class<?>> classHierarchy) {
-		int modifiers = method.getModifiers();
-		if (Modifier.isPrivate(modifiers))
-			return false;
-		if (Modifier.isStatic(modifiers))
-			return false;
-		// method is not private if we reached this line, check not(public OR protected)
-		boolean isDefault = !(Modifier.isPublic(modifiers) || Modifier.isProtected(modifiers));
-
-		String methodName = method.getName();
-		Class<?>[] methodParams = method.getParameterTypes();
-		int methodParamsLength = method.getParameterTypes().length;
-		for (Class<?> subClass : classHierarchy) {
-			Method[] methods = getDeclaredMethods(subClass);
-			Method matchingMethod = null;
-			for (Method candidate : methods) {
-				if (!methodName.equals(candidate.getName()))
-					continue;
-				Class<?>[] candidateParams = candidate.getParameterTypes();
-				if (candidateParams.length != methodParamsLength)
-					continue;
-				boolean paramsMatch = true;
-				for (int i = 0; i < methodParamsLength; i++) {
-					if (candidateParams[i].equals(methodParams[i])) // strictly speaking, need to add erasures
-						continue;
-					paramsMatch = false;
-				}
-				if (!paramsMatch)
-					continue;
-				matchingMethod = candidate;
-				break;
-			}
-			if (matchingMethod == null)
-				continue;
-
-			if (isDefault) { // must be in the same package to override
-				Package originalPackage = method.getDeclaringClass().getPackage();
-				Package overridePackage = subClass.getPackage();
-
-				if (originalPackage == null && overridePackage == null)
-					return true;
-				if (originalPackage == null || overridePackage == null)
-					return false;
-				if (originalPackage.equals(overridePackage))
-					return true;
-			} else
-				return true;
-		}
-		return false;
-	}
-
-	private Constructor<?>[] getDeclaredConstructors(Class<?> c) {
-		Constructor<?>[] constructors = constructorsCache.get(c);
-		if (constructors == null) {
-			constructors = c.getDeclaredConstructors();
-			// Sort the constructors by descending number of constructor
-			// arguments
-			Arrays.sort(constructors, (c1, c2) -> {
-				int l1 = c1.getParameterTypes().length;
-				int l2 = c2.getParameterTypes().length;
-				return l2 - l1;
-			});
-			constructorsCache.put(c, constructors);
-		}
-		return constructors;
-	}
-
-	private Method[] getDeclaredMethods(Class<?> c) {
-		Method[] methods = methodsCache.get(c);
-		if (methods == null) {
-			// filter out all bridge methods
-			methods = Stream.of(c.getDeclaredMethods())
-					.filter(m -> !m.isBridge()).toArray(s -> new Method[s]);
-			methodsCache.put(c, methods);
-		}
-		return methods;
-	}
-
-	private Field[] getDeclaredFields(Class<?> c) {
-		Field[] fields = fieldsCache.get(c);
-		if (fields == null) {
-			fields = c.getDeclaredFields();
-			fieldsCache.put(c, fields);
-		}
-		return fields;
 	}
 
 	private Class<?> getDesiredClass(Type desiredType) {
@@ -859,7 +874,17 @@ public class InjectorImpl implements IInjector {
 	/**
 	 * Returns null if not a provider
 	 */
-	private Class<?> getProviderType(Type type) {
+	private static Class<?> getProviderType(IObjectDescriptor descriptor) {
+		if (descriptor instanceof ObjectDescriptor)
+			return ((ObjectDescriptor) descriptor).providerType;
+		return getProviderType(descriptor.getDesiredType());
+	}
+
+	/**
+	 * @return the type <code>T</code> of a <code>Provider&lt;T&gt;</code>, or
+	 *         <code>null</code> if the type is not a provider
+	 */
+	static Class<?> getProviderType(Type type) {
 		if (!(type instanceof ParameterizedType))
 			return null;
 		Type rawType = ((ParameterizedType) type).getRawType();
@@ -883,6 +908,7 @@ public class InjectorImpl implements IInjector {
 		Binding internalBinding = (Binding) binding;
 		Class<?> clazz = internalBinding.getDescribedClass();
 		synchronized (bindings) {
+			bindingsGeneration++;
 			if (bindings.containsKey(clazz)) {
 				Set<Binding> collection = bindings.get(clazz);
 				String desiredQualifierName = internalBinding.getQualifierName();
@@ -904,7 +930,7 @@ public class InjectorImpl implements IInjector {
 	}
 
 	private Binding findBinding(IObjectDescriptor descriptor) {
-		Class<?> desiredClass = getProviderType(descriptor.getDesiredType());
+		Class<?> desiredClass = getProviderType(descriptor);
 		if (desiredClass == null)
 			desiredClass = getDesiredClass(descriptor.getDesiredType());
 		synchronized (bindings) {
@@ -953,41 +979,13 @@ public class InjectorImpl implements IInjector {
 		return str1.equals(str2);
 	}
 
-	private void processAnnotated(Class<? extends Annotation> annotation, Object userObject, Class<?> objectClass, PrimaryObjectSupplier objectSupplier, PrimaryObjectSupplier tempSupplier, ArrayList<Class<?>> classHierarchy) {
-		Class<?> superClass = objectClass.getSuperclass();
-		if (superClass != null && !superClass.getName().equals(JAVA_OBJECT)) {
-			classHierarchy.add(objectClass);
-			processAnnotated(annotation, userObject, superClass, objectSupplier, tempSupplier, classHierarchy);
-			classHierarchy.remove(objectClass);
-		}
-		Method[] methods = getDeclaredMethods(objectClass);
-		for (Method method : methods) {
-			if (!isAnnotationPresent(method, annotation)) {
-				if (shouldDebug) {
-					for (Annotation a : method.getAnnotations()) {
-						if (annotation.getName().equals(a.annotationType().getName())) {
-							StringBuilder tmp = new StringBuilder();
-							tmp.append("Possbible annotation mismatch: method \""); //$NON-NLS-1$
-							tmp.append(method.toString());
-							tmp.append("\" annotated with \""); //$NON-NLS-1$
-							tmp.append(describeClass(a.annotationType()));
-							tmp.append("\" but was looking for \""); //$NON-NLS-1$
-							tmp.append(describeClass(annotation));
-							tmp.append("\""); //$NON-NLS-1$
-							LogHelper.logWarning(tmp.toString(), null);
-						}
-					}
-				}
-				continue;
-			}
-			if (isOverridden(method, classHierarchy))
-				continue;
-
+	private void processAnnotated(Class<? extends Annotation> annotation, Object userObject, PrimaryObjectSupplier objectSupplier, PrimaryObjectSupplier tempSupplier) {
+		for (InjectionPoint<Method> method : InjectionPlan.of(userObject.getClass()).getLifecycleMethods(annotation)) {
 			MethodRequestor requestor = new MethodRequestor(method, this, objectSupplier, tempSupplier, userObject, false);
 			Object[] actualArgs = resolveArgs(requestor, objectSupplier, tempSupplier, false, false, false);
 			int unresolved = unresolved(actualArgs);
 			if (unresolved != -1) {
-				if (isAnnotationPresent(method, Optional.class))
+				if (requestor.isOptional())
 					continue;
 				reportUnresolvedArgument(requestor, unresolved);
 			}
@@ -996,42 +994,8 @@ public class InjectorImpl implements IInjector {
 		}
 	}
 
-	/** Provide a human-meaningful description of the provided class */
-	private String describeClass(Class<?> cl) {
-		Bundle b = FrameworkUtil.getBundle(cl);
-		if (b != null) {
-			return b.getSymbolicName() + ":" + b.getVersion() + ":" + cl.getName(); //$NON-NLS-1$ //$NON-NLS-2$
-		}
-		CodeSource clazzCS = cl.getProtectionDomain().getCodeSource();
-		if (clazzCS != null) {
-			return clazzCS.getLocation() + ">" + cl.getName(); //$NON-NLS-1$
-		}
-		if (cl.getClassLoader() == null) {
-			return cl.getName() + " [via bootstrap classloader]"; //$NON-NLS-1$
-		}
-		return cl.getName();
-	}
-
 	@Override
 	public void setDefaultSupplier(PrimaryObjectSupplier objectSupplier) {
 		defaultSupplier = objectSupplier;
 	}
-
-	private boolean isAnnotationPresent(AnnotatedElement annotatedElement,
-			Class<? extends Annotation> annotation) {
-		Map<AnnotatedElement, Boolean> cache = annotationsPresent.get(annotation);
-		if (cache == null) {
-			cache = Collections.synchronizedMap(new WeakHashMap<>());
-			annotationsPresent.put(annotation, cache);
-		}
-
-		Boolean present = cache.get(annotatedElement);
-		if (present != null) {
-			return present;
-		}
-
-		boolean isPresent = annotatedElement.isAnnotationPresent(annotation);
-		cache.put(annotatedElement, isPresent);
-		return isPresent;
-	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2016 IBM Corporation and others.
+ * Copyright (c) 2010, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,12 +14,7 @@
 package org.eclipse.e4.core.internal.di;
 
 import java.lang.annotation.Annotation;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.lang.reflect.Type;
-import java.util.Collections;
-import java.util.Map;
-import java.util.WeakHashMap;
 import org.eclipse.e4.core.di.IInjector;
 import org.eclipse.e4.core.di.InjectionException;
 import org.eclipse.e4.core.di.suppliers.IObjectDescriptor;
@@ -27,78 +22,55 @@ import org.eclipse.e4.core.di.suppliers.PrimaryObjectSupplier;
 
 public class MethodRequestor extends Requestor<Method> {
 
-	/**
-	 * The parameters annotation cache.  Having a *static* map is valuable as it changes the hit rate from about 60% to about 90%.
-	 */
-	private static Map<Method, Annotation[][]> annotationCache = Collections.synchronizedMap(new WeakHashMap<>());
+	private final InjectionPoint<Method> point;
 
 	public MethodRequestor(Method method, IInjector injector, PrimaryObjectSupplier primarySupplier, PrimaryObjectSupplier tempSupplier, Object requestingObject, boolean track) {
-		super(method, injector, primarySupplier, tempSupplier, requestingObject, track);
+		this(InjectionPlan.point(method), injector, primarySupplier, tempSupplier, requestingObject, track);
+	}
+
+	MethodRequestor(InjectionPoint<Method> point, IInjector injector, PrimaryObjectSupplier primarySupplier, PrimaryObjectSupplier tempSupplier, Object requestingObject, boolean track) {
+		super(point.member, injector, primarySupplier, tempSupplier, requestingObject, track);
+		this.point = point;
 	}
 
 	@Override
-	public Object execute() throws InjectionException {
-		if (actualArgs == null) {
-			if (location.getParameterTypes().length > 0)
+	protected Object doExecute(Object[] args) throws InjectionException {
+		if (args == null) {
+			if (point.descriptors.length > 0)
 				return null; // optional method call
 		}
 		Object userObject = getRequestingObject();
 		if (userObject == null)
 			return null;
 		Object result = null;
-		if (!location.isAccessible()) {
-			location.setAccessible(true);
-		}
 		boolean pausedRecording = false;
 		if ((primarySupplier != null)) {
 			primarySupplier.pauseRecording();
 			pausedRecording = true;
 		}
 		try {
-			result = location.invoke(userObject, actualArgs);
-		} catch (IllegalArgumentException | IllegalAccessException e) {
-			throw new InjectionException(e);
-		} catch (InvocationTargetException e) {
-			Throwable originalException = e.getCause();
+			result = point.invoke(userObject, args);
+		} catch (Error e) {
 			// Errors such as ThreadDeath or OutOfMemoryError should not be trapped
 			// http://bugs.eclipse.org/bugs/show_bug.cgi?id=457687
-			if (originalException instanceof Error) {
-				throw (Error) originalException;
-			}
-			throw new InjectionException((originalException != null) ? originalException : e);
+			throw e;
+		} catch (Throwable e) {
+			throw new InjectionException(e);
 		} finally {
 			if (pausedRecording)
 				primarySupplier.resumeRecording();
-			clearResolvedArgs();
 		}
 		return result;
 	}
 
 	@Override
 	protected IObjectDescriptor[] calcDependentObjects() {
-		Type[] parameterTypes = location.getGenericParameterTypes();
-		Annotation[][] annotations = getParameterAnnotations();
-		if (parameterTypes.length == 0) {
-			return EMPTY_DESCRIPTORS;
-		}
-		IObjectDescriptor[] descriptors = new IObjectDescriptor[parameterTypes.length];
-		for (int i = 0; i < parameterTypes.length; i++) {
-			descriptors[i] = new ObjectDescriptor(parameterTypes[i], annotations[i]);
-		}
-		return descriptors;
+		return point.descriptors;
 	}
 
 	/** @return the annotations for each of the method parameters */
 	public Annotation[][] getParameterAnnotations() {
-		// We don't synchronize annotationCache to avoid performance overhead.
-		// The code below should be fine non-synchronized; but this needs to be
-		// kept in mind if this method is updated.
-		Annotation[][] result = annotationCache.get(location);
-		if (result == null) {
-			result = location.getParameterAnnotations();
-			annotationCache.put(location, result);
-		}
-		return result;
+		return point.parameterAnnotations;
 	}
 
 	@Override
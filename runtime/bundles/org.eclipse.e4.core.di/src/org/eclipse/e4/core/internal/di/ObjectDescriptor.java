@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2015 IBM Corporation and others.
+ * Copyright (c) 2010, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -24,10 +24,13 @@ public class ObjectDescriptor implements IObjectDescriptor {
 
 	final private Type desiredType;
 	final private Annotation[] annotations;
+	/** the type T if this describes a Provider&lt;T&gt;; <code>null</code> otherwise */
+	final Class<?> providerType;
 
 	public ObjectDescriptor(Type desiredType, Annotation[] allAnnotations) {
 		this.desiredType = desiredType;
 		this.annotations = (allAnnotations == null) ? null : qualifiers(allAnnotations);
+		this.providerType = InjectorImpl.getProviderType(desiredType);
 	}
 
 	@Override
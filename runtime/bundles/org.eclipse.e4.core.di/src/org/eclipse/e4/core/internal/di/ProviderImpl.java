@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2015 IBM Corporation and others.
+ * Copyright (c) 2009, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -20,21 +20,49 @@ import org.eclipse.e4.core.di.suppliers.PrimaryObjectSupplier;
 
 public class ProviderImpl<T> implements Provider<T> {
 
+	/**
+	 * The implementation class found for the bindings of one generation.
+	 */
+	private static final class Implementation {
+		final int bindingsGeneration;
+		final Class<?> clazz;
+		final IObjectDescriptor[] descriptors;
+
+		Implementation(int bindingsGeneration, Class<?> clazz) {
+			this.bindingsGeneration = bindingsGeneration;
+			this.clazz = clazz;
+			this.descriptors = new IObjectDescriptor[] {new ObjectDescriptor(clazz, null)};
+		}
+	}
+
 	final private PrimaryObjectSupplier objectProvider;
 	final private IObjectDescriptor objectDescriptor;
 	final private IInjector injector;
 
+	private volatile Implementation implementation;
+
 	public ProviderImpl(IObjectDescriptor descriptor, IInjector injector, PrimaryObjectSupplier provider) {
 		objectDescriptor = descriptor;
 		objectProvider = provider;
 		this.injector = injector;
 	}
 
+	boolean isFor(PrimaryObjectSupplier provider) {
+		return objectProvider == provider;
+	}
+
 	@Override
 	@SuppressWarnings("unchecked")
 	public T get() {
+		InjectorImpl injectorImpl = (InjectorImpl) injector;
+		Implementation current = implementation;
+		int generation = injectorImpl.getBindingsGeneration();
+		if (current == null || current.bindingsGeneration != generation) {
+			current = new Implementation(generation, injectorImpl.getProviderImplementation(objectDescriptor));
+			implementation = current;
+		}
 		try {
-			return (T) ((InjectorImpl) injector).makeFromProvider(objectDescriptor, objectProvider);
+			return (T) injectorImpl.makeFromProvider(current.clazz, current.descriptors, objectProvider);
 		} catch (ClassCastException e) {
 			return null;
 		}
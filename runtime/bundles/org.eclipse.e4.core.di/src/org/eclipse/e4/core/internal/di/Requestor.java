@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2015 IBM Corporation and others.
+ * Copyright (c) 2010, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -17,11 +17,9 @@ import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
 import java.lang.reflect.AnnotatedElement;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Map;
 import java.util.Objects;
-import java.util.WeakHashMap;
 import org.eclipse.e4.core.di.IInjector;
+import org.eclipse.e4.core.di.InjectionException;
 import org.eclipse.e4.core.di.annotations.GroupUpdates;
 import org.eclipse.e4.core.di.annotations.Optional;
 import org.eclipse.e4.core.di.suppliers.IObjectDescriptor;
@@ -33,8 +31,6 @@ import org.eclipse.e4.core.di.suppliers.PrimaryObjectSupplier;
  */
 abstract public class Requestor<L extends AnnotatedElement> implements IRequestor {
 
-	private static final Map<AnnotatedElement, IObjectDescriptor[]> descriptorCache = Collections
-			.synchronizedMap(new WeakHashMap<>());
 	protected static final IObjectDescriptor[] EMPTY_DESCRIPTORS = new IObjectDescriptor[0];
 
 	/** The request location; may be null */
@@ -52,11 +48,25 @@ abstract public class Requestor<L extends AnnotatedElement> implements IRequesto
 
 	protected Object[] actualArgs;
 
-	private IObjectDescriptor[] objectDescriptors;
+	private volatile IObjectDescriptor[] objectDescriptors;
+
+	/** providers injected into Provider&lt;T&gt; arguments, reused across resolutions */
+	private ProviderImpl<?>[] providers;
+
+	/** set while the next execution is deferred to the end of an update group */
+	private volatile boolean deferred;
 
 	/* @NonNull */
 	protected abstract IObjectDescriptor[] calcDependentObjects();
 
+	/**
+	 * Performs the injection with the given arguments.
+	 *
+	 * @param args the resolved arguments, <code>null</code> if an optional
+	 *             injection could not be resolved
+	 */
+	protected abstract Object doExecute(Object[] args) throws InjectionException;
+
 	public Requestor(L location, IInjector injector, PrimaryObjectSupplier primarySupplier, PrimaryObjectSupplier tempSupplier, Object requestingObject, boolean track) {
 		this.location = location;
 		this.injector = injector;
@@ -144,6 +154,65 @@ abstract public class Requestor<L extends AnnotatedElement> implements IRequesto
 
 	public void setResolvedArgs(Object[] actualArgs) {
 		this.actualArgs = actualArgs;
+		deferred = false;
+	}
+
+	/**
+	 * Skips the next call to {@link #execute()}; the injector calls
+	 * {@link #executeDeferred()} instead when the update group ends.
+	 */
+	void deferExecution() {
+		deferred = true;
+	}
+
+	@Override
+	public Object execute() throws InjectionException {
+		if (deferred) {
+			deferred = false;
+			return null; // executed at the end of the update group
+		}
+		try {
+			return doExecute(actualArgs);
+		} finally {
+			clearResolvedArgs();
+		}
+	}
+
+	Object executeDeferred() throws InjectionException {
+		deferred = false;
+		try {
+			return doExecute(actualArgs);
+		} finally {
+			clearResolvedArgs();
+		}
+	}
+
+	/**
+	 * Resolves the arguments for a supplier delivering a one-off value such as an
+	 * event. The arguments are returned instead of kept in this requestor, so
+	 * concurrent deliveries on different threads do not see each other's values.
+	 * Pass them to {@link #execute(Object[])}.
+	 *
+	 * @return the arguments, or <code>null</code> if they could not be resolved
+	 */
+	public Object[] resolveDelivery() {
+		return ((InjectorImpl) injector).resolveDelivery(this);
+	}
+
+	/**
+	 * Performs the injection with the given arguments right away. Unlike
+	 * {@link #execute()} it is never deferred to the end of an update group.
+	 *
+	 * @param args the arguments returned by {@link #resolveDelivery()}; the
+	 *             execution is skipped if <code>null</code>
+	 * @return result of the task
+	 * @throws InjectionException if an exception occurred while performing this
+	 *                            task
+	 */
+	public Object execute(Object[] args) throws InjectionException {
+		if (args == null)
+			return null;
+		return doExecute(args);
 	}
 
 	@Override
@@ -178,11 +247,32 @@ abstract public class Requestor<L extends AnnotatedElement> implements IRequesto
 		return false;
 	}
 
-	public synchronized IObjectDescriptor[] getDependentObjects() {
-		if (objectDescriptors == null) {
-			objectDescriptors = descriptorCache.computeIfAbsent(location, l -> calcDependentObjects());
+	public IObjectDescriptor[] getDependentObjects() {
+		IObjectDescriptor[] result = objectDescriptors;
+		if (result == null) {
+			// descriptors are shared and immutable, concurrent calls may compute them twice
+			result = calcDependentObjects();
+			objectDescriptors = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the provider to inject into the given <code>Provider&lt;T&gt;</code>
+	 * argument, creating it on first use.
+	 */
+	ProviderImpl<?> getProvider(int index, PrimaryObjectSupplier objectSupplier) {
+		ProviderImpl<?>[] current = providers;
+		if (current == null) {
+			current = new ProviderImpl<?>[getDependentObjects().length];
+			providers = current;
+		}
+		ProviderImpl<?> provider = current[index];
+		if (provider == null || !provider.isFor(objectSupplier)) {
+			provider = new ProviderImpl<>(getDependentObjects()[index], injector, objectSupplier);
+			current[index] = provider;
 		}
-		return objectDescriptors;
+		return provider;
 	}
 
 	/**
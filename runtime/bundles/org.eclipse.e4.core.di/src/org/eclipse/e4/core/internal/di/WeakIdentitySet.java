@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.core.internal.di;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A set that holds weak references to the objects, compared by identity.
+ * Unlike {@link WeakRefList} objects are added and removed in constant time;
+ * iteration follows the order in which the objects were added.
+ */
+final class WeakIdentitySet {
+
+	private static final class IdentityReference extends WeakReference<Object> {
+		private final int hashCode;
+
+		IdentityReference(Object referent, ReferenceQueue<Object> queue) {
+			super(referent, queue);
+			hashCode = System.identityHashCode(referent);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof IdentityReference))
+				return false;
+			Object referent = get();
+			return referent != null && referent == ((IdentityReference) obj).get();
+		}
+	}
+
+	private final Set<IdentityReference> userObjects = new LinkedHashSet<>();
+	private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+	/**
+	 * @return <code>false</code> if the object was already in the set
+	 */
+	synchronized boolean add(Object object) {
+		expunge();
+		return userObjects.add(new IdentityReference(object, queue));
+	}
+
+	synchronized boolean contains(Object object) {
+		return userObjects.contains(new IdentityReference(object, null));
+	}
+
+	/**
+	 * @return <code>true</code> if the object was in the set
+	 */
+	synchronized boolean remove(Object object) {
+		expunge();
+		return userObjects.remove(new IdentityReference(object, null));
+	}
+
+	synchronized Object[] getSafeCopy() {
+		expunge();
+		Object[] result = new Object[userObjects.size()];
+		int pos = 0;
+		for (IdentityReference ref : userObjects) {
+			Object userObject = ref.get();
+			if (userObject != null) {
+				result[pos] = userObject;
+				pos++;
+			}
+		}
+		if (pos == result.length)
+			return result;
+		// reallocate the array
+		Object[] tmp = new Object[pos];
+		System.arraycopy(result, 0, tmp, 0, pos);
+		return tmp;
+	}
+
+	private void expunge() {
+		Reference<?> ref;
+		while ((ref = queue.poll()) != null) {
+			// user object got GCed, clean up refs for future
+			userObjects.remove(ref);
+		}
+	}
+}
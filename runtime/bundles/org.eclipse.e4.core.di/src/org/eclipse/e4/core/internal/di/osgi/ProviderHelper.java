@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2015 IBM Corporation and others.
+ * Copyright (c) 2010, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,11 +15,14 @@ package org.eclipse.e4.core.internal.di.osgi;
 
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.eclipse.e4.core.di.IInjector;
 import org.eclipse.e4.core.di.InjectorFactory;
 import org.eclipse.e4.core.di.suppliers.ExtendedObjectSupplier;
+import org.eclipse.e4.core.di.suppliers.IObjectDescriptor;
+import org.eclipse.e4.core.di.suppliers.IRequestor;
 import org.eclipse.e4.core.di.suppliers.PrimaryObjectSupplier;
 import org.eclipse.e4.core.internal.di.shared.CoreLogger;
 import org.osgi.framework.Bundle;
@@ -30,12 +33,28 @@ import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceReference;
 
 /**
- * This helper class assumes that availability of extended services
- * does not change.
+ * Finds the extended object supplier registered for a qualifier. Results,
+ * including the absence of a supplier, are cached per qualifier; the cache is
+ * discarded whenever an extended object supplier service is registered,
+ * modified or unregistered.
  */
 public class ProviderHelper {
 
-	static protected Map<String, ExtendedObjectSupplier> extendedSuppliers = new HashMap<>();
+	static protected Map<String, ExtendedObjectSupplier> extendedSuppliers = new ConcurrentHashMap<>();
+
+	/** Cached for qualifiers without a supplier */
+	static private final ExtendedObjectSupplier NO_SUPPLIER = new ExtendedObjectSupplier() {
+		@Override
+		public Object get(IObjectDescriptor descriptor, IRequestor requestor, boolean track, boolean group) {
+			return IInjector.NOT_A_VALUE;
+		}
+	};
+
+	/**
+	 * Incremented on every supplier service change; a lookup racing with a
+	 * change does not cache its result.
+	 */
+	static private final AtomicInteger generation = new AtomicInteger();
 
 	static {
 		Bundle bundle = FrameworkUtil.getBundle(ProviderHelper.class);
@@ -45,9 +64,8 @@ public class ProviderHelper {
 			String filter = '(' + Constants.OBJECTCLASS + '=' + ExtendedObjectSupplier.SERVICE_NAME + ')';
 			try {
 				bundleContext.addServiceListener(event -> {
-					synchronized (extendedSuppliers) {
-						extendedSuppliers.clear();
-					}
+					generation.incrementAndGet();
+					extendedSuppliers.clear();
 				}, filter);
 			} catch (InvalidSyntaxException e) {
 				// should not happen - we tested the line above
@@ -57,21 +75,27 @@ public class ProviderHelper {
 	}
 
 	static public ExtendedObjectSupplier findProvider(String qualifier, PrimaryObjectSupplier objectSupplier) {
-		synchronized (extendedSuppliers) {
-			if (extendedSuppliers.containsKey(qualifier))
-				return extendedSuppliers.get(qualifier);
-			Bundle bundle = FrameworkUtil.getBundle(ProviderHelper.class);
-			if (bundle == null) {
-				// In case we are not in an OSGi context, see bug 513883
-				return null;
-			}
+		ExtendedObjectSupplier supplier = extendedSuppliers.get(qualifier);
+		if (supplier == null) {
+			supplier = lookupProvider(qualifier, objectSupplier);
+		}
+		return (supplier == NO_SUPPLIER) ? null : supplier;
+	}
+
+	static synchronized private ExtendedObjectSupplier lookupProvider(String qualifier, PrimaryObjectSupplier objectSupplier) {
+		ExtendedObjectSupplier cached = extendedSuppliers.get(qualifier);
+		if (cached != null)
+			return cached; // found by a concurrent lookup
+		int lookupGeneration = generation.get();
+		ExtendedObjectSupplier supplier = NO_SUPPLIER;
+		Bundle bundle = FrameworkUtil.getBundle(ProviderHelper.class);
+		// In case we are not in an OSGi context there are no suppliers, see bug 513883
+		if (bundle != null) {
 			BundleContext bundleContext = bundle.getBundleContext();
 			try {
 				String filter = '(' + ExtendedObjectSupplier.SERVICE_CONTEXT_KEY + '=' + qualifier + ')';
 				ServiceReference<?>[] refs = bundleContext.getServiceReferences(ExtendedObjectSupplier.SERVICE_NAME, filter);
 				if (refs != null && refs.length > 0) {
-					ExtendedObjectSupplier supplier;
-
 					// Explicitly sort by ranking if more than one supplier is found
 					if (refs.length > 1) {
 						Arrays.sort(refs, Collections.reverseOrder());
@@ -82,15 +106,13 @@ public class ProviderHelper {
 						IInjector injector = InjectorFactory.getDefault();
 						injector.inject(supplier, objectSupplier);
 					}
-
-					extendedSuppliers.put(qualifier, supplier);
-					return supplier;
 				}
 			} catch (InvalidSyntaxException e) {
 				// should not happen - we tested the line above
 			}
-			extendedSuppliers.put(qualifier, null);
-			return null;
 		}
+		if (supplier != null && generation.get() == lookupGeneration)
+			extendedSuppliers.put(qualifier, supplier);
+		return (supplier == null) ? NO_SUPPLIER : supplier;
 	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2011, 2018 BestSolution.at and others.
+ * Copyright (c) 2011, 2022 BestSolution.at and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,27 +15,29 @@
  ******************************************************************************/
 package org.eclipse.e4.core.internal.services;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
 import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.annotation.PostConstruct;
 import org.eclipse.e4.core.services.nls.IMessageFactoryService;
 import org.eclipse.e4.core.services.nls.Message;
 import org.eclipse.e4.core.services.nls.Message.ReferenceType;
 import org.eclipse.e4.core.services.translation.ResourceBundleProvider;
-import org.osgi.framework.Bundle;
-import org.osgi.framework.FrameworkUtil;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.component.annotations.ReferencePolicy;
@@ -48,78 +50,153 @@ public class MessageFactoryServiceImpl implements IMessageFactoryService {
 	private LoggerFactory factory;
 	private Logger logger;
 
-	// Cache so when multiple instance use the same message class
-	private Map<Object, Reference<Object>> SOFT_CACHE = Collections
-			.synchronizedMap(new HashMap<>());
+	/**
+	 * The cached instances of a messages class per {@link Locale}, held by soft or
+	 * weak references as specified by its {@link Message} annotation.
+	 */
+	private static final class MessageClass {
+		final Message annotation;
+		final ReferenceType referenceType;
+		/** <code>null</code> if instances are not cached */
+		final ConcurrentMap<Locale, Reference<Object>> instances;
+		/** the fields to translate, computed when the first instance is created */
+		volatile FieldSetter[] setters;
 
-	private Map<Object, Reference<Object>> WEAK_CACHE = Collections
-			.synchronizedMap(new HashMap<>());
+		MessageClass(Class<?> messages) {
+			annotation = messages.getAnnotation(Message.class);
+			referenceType = (annotation == null) ? ReferenceType.SOFT : annotation.referenceType();
+			instances = (referenceType == ReferenceType.NONE) ? null : new ConcurrentHashMap<>(4);
+		}
+	}
 
-	private int CLEANUPCOUNT = 0;
+	/**
+	 * A field of a messages class that is set to the translation of its name.
+	 */
+	private static final class FieldSetter {
+		/** (Object instance, String value)void */
+		private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, String.class);
 
-	@Override
-	public <M> M getMessageInstance(final Locale locale, final Class<M> messages,
-			final ResourceBundleProvider provider) {
-		String key = messages.getName() + "_" + locale; //$NON-NLS-1$
+		final String name;
+		private final MethodHandle setter;
 
-		final Message annotation = messages.getAnnotation(Message.class);
-		Map<Object, Reference<Object>> cache = null;
-		ReferenceType type = ReferenceType.NONE;
+		FieldSetter(Field field) throws IllegalAccessException {
+			name = field.getName();
+			MethodHandle handle = MethodHandles.lookup().unreflectSetter(field);
+			if (Modifier.isStatic(field.getModifiers()))
+				handle = MethodHandles.dropArguments(handle, 0, Object.class);
+			setter = handle.asType(SETTER_TYPE);
+		}
 
-		if (++CLEANUPCOUNT > 1000) {
-			Iterator<Entry<Object, Reference<Object>>> it = WEAK_CACHE.entrySet().iterator();
-			while (it.hasNext()) {
-				if (it.next().getValue().get() == null) {
-					it.remove();
-				}
+		void set(Object instance, String value) {
+			try {
+				setter.invokeExact(instance, value);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				// setting a field does not throw checked exceptions
+				throw new IllegalStateException(e);
 			}
+		}
+	}
 
-			it = SOFT_CACHE.entrySet().iterator();
-			while (it.hasNext()) {
-				if (it.next().getValue().get() == null) {
-					it.remove();
-				}
-			}
-			CLEANUPCOUNT = 0;
+	/**
+	 * A cached instance that removes itself from the cache once it has been
+	 * garbage collected.
+	 */
+	private interface CacheEntry {
+		void expunge();
+	}
+
+	private static final class SoftEntry extends SoftReference<Object> implements CacheEntry {
+		private final ConcurrentMap<Locale, Reference<Object>> instances;
+		private final Locale locale;
+
+		SoftEntry(Object instance, ReferenceQueue<Object> queue, ConcurrentMap<Locale, Reference<Object>> instances, Locale locale) {
+			super(instance, queue);
+			this.instances = instances;
+			this.locale = locale;
 		}
 
-		if (annotation == null || annotation.referenceType() == ReferenceType.SOFT) {
-			cache = SOFT_CACHE;
-			type = ReferenceType.SOFT;
-		} else if (annotation.referenceType() == ReferenceType.WEAK) {
-			cache = WEAK_CACHE;
-			type = ReferenceType.WEAK;
+		@Override
+		public void expunge() {
+			instances.remove(locale, this);
 		}
+	}
 
-		if (cache != null && cache.containsKey(key)) {
-			@SuppressWarnings("unchecked")
-			Reference<M> ref = (Reference<M>) cache.get(key);
-			M o = ref.get();
-			if (o != null) {
-				return o;
+	private static final class WeakEntry extends WeakReference<Object> implements CacheEntry {
+		private final ConcurrentMap<Locale, Reference<Object>> instances;
+		private final Locale locale;
+
+		WeakEntry(Object instance, ReferenceQueue<Object> queue, ConcurrentMap<Locale, Reference<Object>> instances, Locale locale) {
+			super(instance, queue);
+			this.instances = instances;
+			this.locale = locale;
+		}
+
+		@Override
+		public void expunge() {
+			instances.remove(locale, this);
+		}
+	}
+
+	// Cache so when multiple instance use the same message class
+	private final ClassValue<MessageClass> messageClasses = new ClassValue<>() {
+		@Override
+		protected MessageClass computeValue(Class<?> type) {
+			return new MessageClass(type);
+		}
+	};
+
+	private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+
+	@Override
+	public <M> M getMessageInstance(final Locale locale, final Class<M> messages,
+			final ResourceBundleProvider provider) {
+		expungeCollected();
+		MessageClass messageClass = messageClasses.get(messages);
+		ConcurrentMap<Locale, Reference<Object>> instances = messageClass.instances;
+
+		if (instances != null) {
+			Reference<Object> ref = instances.get(locale);
+			if (ref != null) {
+				Object o = ref.get();
+				if (o != null) {
+					return messages.cast(o);
+				}
 			}
-			cache.remove(key);
 		}
 
 		M instance;
 
 		if (System.getSecurityManager() == null) {
-			instance = createInstance(locale, messages, annotation, provider);
+			instance = createInstance(locale, messages, messageClass, provider);
 		} else {
-			instance = AccessController.doPrivileged((PrivilegedAction<M>) () -> createInstance(locale, messages, annotation, provider));
+			instance = AccessController.doPrivileged((PrivilegedAction<M>) () -> createInstance(locale, messages, messageClass, provider));
 		}
 
-		if (cache != null) {
-			if (type == ReferenceType.SOFT) {
-				cache.put(key, new SoftReference<>(instance));
-			} else if (type == ReferenceType.WEAK) {
-				cache.put(key, new WeakReference<>(instance));
+		if (instances != null && instance != null) {
+			Reference<Object> ref = (messageClass.referenceType == ReferenceType.WEAK)
+					? new WeakEntry(instance, collected, instances, locale)
+					: new SoftEntry(instance, collected, instances, locale);
+			// if another thread created an instance meanwhile, the first one cached wins
+			Reference<Object> cached = instances.merge(locale, ref,
+					(existing, created) -> existing.get() != null ? existing : created);
+			Object o = cached.get();
+			if (o != null) {
+				return messages.cast(o);
 			}
 		}
 
 		return instance;
 	}
 
+	private void expungeCollected() {
+		Reference<?> ref;
+		while ((ref = collected.poll()) != null) {
+			((CacheEntry) ref).expunge();
+		}
+	}
+
 	/**
 	 * Creates and returns an instance of the of a given messages class for the given {@link Locale}
 	 * . The message class gets instantiated and the fields are initialized with values out of a
@@ -147,9 +224,10 @@ public class MessageFactoryServiceImpl implements IMessageFactoryService {
 	 *            The {@link Locale} for which the message class instance is requested.
 	 * @param messages
 	 *            The type of the message class whose instance is requested.
-	 * @param annotation
-	 *            The annotation that is used in the message class. If specified it is needed to
-	 *            retrieve the URI of the location to search for the {@link ResourceBundle}.
+	 * @param messageClass
+	 *            The cached information about the message class, including the annotation
+	 *            that is needed to retrieve the URI of the location to search for the
+	 *            {@link ResourceBundle}.
 	 * @param rbProvider
 	 *            The service that is needed to retrieve {@link ResourceBundle} objects from a
 	 *            bundle with a given locale.
@@ -158,46 +236,20 @@ public class MessageFactoryServiceImpl implements IMessageFactoryService {
 	 *         <code>null</code> if an error occured on creating the instance.
 	 */
 	@SuppressWarnings("deprecation")
-	private <M> M createInstance(Locale locale, Class<M> messages, Message annotation,
+	private <M> M createInstance(Locale locale, Class<M> messages, MessageClass messageClass,
 			ResourceBundleProvider rbProvider) {
 
-		ResourceBundle resourceBundle = null;
-		if (annotation != null) {
-			if (!annotation.contributionURI().isEmpty()) {
-				resourceBundle = ResourceBundleHelper.getResourceBundleForUri(
-						annotation.contributionURI(), locale, rbProvider);
-			} else if (!annotation.contributorURI().isEmpty()) {
-				Logger log = this.logger;
-				if (log != null) {
-					log.warn(
-							"Usage of @Message#contributorURI detected! Please use @Message#contributionURI instead!"); //$NON-NLS-1$
-				}
-				resourceBundle = ResourceBundleHelper.getResourceBundleForUri(
-					annotation.contributorURI(), locale, rbProvider);
-			}
-		}
-
-		if (resourceBundle == null) {
-			// check for the resource bundle relative to the messages class
-			String baseName = messages.getName().replace('.', '/');
-
-			resourceBundle = ResourceBundleHelper.getEquinoxResourceBundle(baseName, locale,
-					messages.getClassLoader());
-
-			if (resourceBundle == null) {
-				// check for the resource bundle relative to the messages class by searching
-				// the properties file lower case
-				// this is a fix for Linux environments
-				resourceBundle = ResourceBundleHelper.getEquinoxResourceBundle(
-						baseName.toLowerCase(), locale, messages.getClassLoader());
+		Message annotation = messageClass.annotation;
+		if (annotation != null && annotation.contributionURI().isEmpty()
+				&& !annotation.contributorURI().isEmpty()) {
+			Logger log = this.logger;
+			if (log != null) {
+				log.warn(
+						"Usage of @Message#contributorURI detected! Please use @Message#contributionURI instead!"); //$NON-NLS-1$
 			}
 		}
-
-		if (resourceBundle == null) {
-			// retrieve the OSGi resource bundle
-			Bundle bundle = FrameworkUtil.getBundle(messages);
-			resourceBundle = rbProvider.getResourceBundle(bundle, locale.toString());
-		}
+		ResourceBundle resourceBundle = ResourceBundleHelper.getMessagesResourceBundle(messages, locale,
+				rbProvider);
 
 		// always create a provider, if there is no resource bundle found, simply the modified keys
 		// will be returned by this provider to show that there is something
@@ -208,15 +260,8 @@ public class MessageFactoryServiceImpl implements IMessageFactoryService {
 		M instance = null;
 		try {
 			instance = messages.newInstance();
-			Field[] fields = messages.getDeclaredFields();
-
-			for (Field field : fields) {
-				if (!field.isAccessible()) {
-					field.setAccessible(true);
-				}
-				if (field.getType().isAssignableFrom(String.class)) {
-					field.set(instance, provider.translate(field.getName()));
-				}
+			for (FieldSetter setter : getFieldSetters(messages, messageClass)) {
+				setter.set(instance, provider.translate(setter.name));
 			}
 		} catch (InstantiationException e) {
 			Logger log = this.logger;
@@ -236,6 +281,35 @@ public class MessageFactoryServiceImpl implements IMessageFactoryService {
 		return instance;
 	}
 
+	/**
+	 * Returns the setters of the fields of the messages class that can hold a
+	 * String, except for constants, creating them on first use.
+	 */
+	@SuppressWarnings("deprecation")
+	private FieldSetter[] getFieldSetters(Class<?> messages, MessageClass messageClass) throws IllegalAccessException {
+		FieldSetter[] setters = messageClass.setters;
+		if (setters == null) {
+			List<FieldSetter> result = new ArrayList<>();
+			for (Field field : messages.getDeclaredFields()) {
+				if (!field.getType().isAssignableFrom(String.class)) {
+					continue;
+				}
+				int modifiers = field.getModifiers();
+				if (Modifier.isStatic(modifiers) && Modifier.isFinal(modifiers)) {
+					// constants cannot be set
+					continue;
+				}
+				if (!field.isAccessible()) {
+					field.setAccessible(true);
+				}
+				result.add(new FieldSetter(field));
+			}
+			setters = result.toArray(new FieldSetter[result.size()]);
+			messageClass.setters = setters;
+		}
+		return setters;
+	}
+
 	/**
 	 * Searches for the method annotated {@link PostConstruct} in the messages class. If there is
 	 * one found it will be executed.
@@ -0,0 +1,188 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.core.internal.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.PropertyResourceBundle;
+import java.util.ResourceBundle;
+import java.util.Set;
+
+/**
+ * Bounded cache of the properties files loaded as {@link ResourceBundle}s out of
+ * OSGi bundles. Entries are keyed by the bundle id, the last modification time
+ * of the bundle and the resource name, so an updated bundle is read again;
+ * stale entries are evicted in least recently used order. Missing resources are
+ * cached as well, as every lookup probes several candidate locales.
+ * <p>
+ * The parsed properties are kept in sorted arrays and each load gets its own
+ * lightweight {@link ResourceBundle}, as the parent of a bundle is set by the
+ * lookup that loads it.
+ * </p>
+ * <p>
+ * The maximum number of entries can be set with the system property
+ * <code>org.eclipse.e4.core.services.propertiesCache</code>.
+ * </p>
+ */
+final class PropertiesBundleCache {
+
+	private static final int MAX_SIZE = Integer.getInteger("org.eclipse.e4.core.services.propertiesCache", 512); //$NON-NLS-1$
+
+	/** cached for resources that do not exist */
+	private static final Properties MISSING = new Properties(new String[0], new String[0]);
+
+	private static final Map<Key, Properties> cache = new LinkedHashMap<>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Properties> eldest) {
+			return size() > MAX_SIZE;
+		}
+	};
+
+	/**
+	 * Opens a resource; returns <code>null</code> if the resource does not exist.
+	 */
+	@FunctionalInterface
+	interface ResourceOpener {
+		InputStream open() throws IOException;
+	}
+
+	private static final class Key {
+		private final long bundleId;
+		private final long lastModified;
+		private final String resourceName;
+
+		Key(long bundleId, long lastModified, String resourceName) {
+			this.bundleId = bundleId;
+			this.lastModified = lastModified;
+			this.resourceName = resourceName;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (31 * Long.hashCode(bundleId) + Long.hashCode(lastModified)) + resourceName.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return bundleId == other.bundleId && lastModified == other.lastModified
+					&& resourceName.equals(other.resourceName);
+		}
+	}
+
+	/**
+	 * The parsed contents of a properties file, with the keys sorted.
+	 */
+	private static final class Properties {
+		final String[] keys;
+		final Object[] values;
+
+		Properties(String[] keys, Object[] values) {
+			this.keys = keys;
+			this.values = values;
+		}
+
+		Object get(String key) {
+			int index = Arrays.binarySearch(keys, key);
+			return index < 0 ? null : values[index];
+		}
+	}
+
+	private static final class CompactResourceBundle extends ResourceBundle {
+		private final Properties properties;
+
+		CompactResourceBundle(Properties properties) {
+			this.properties = properties;
+		}
+
+		@Override
+		protected Object handleGetObject(String key) {
+			if (key == null)
+				throw new NullPointerException();
+			return properties.get(key);
+		}
+
+		@Override
+		protected Set<String> handleKeySet() {
+			return new HashSet<>(Arrays.asList(properties.keys));
+		}
+
+		@Override
+		public Enumeration<String> getKeys() {
+			Set<String> keys = new LinkedHashSet<>(Arrays.asList(properties.keys));
+			if (parent != null)
+				keys.addAll(Collections.list(parent.getKeys()));
+			return Collections.enumeration(keys);
+		}
+	}
+
+	private PropertiesBundleCache() {
+		// static access only
+	}
+
+	/**
+	 * Returns a resource bundle for the properties file of the given bundle,
+	 * parsing it if it is not cached.
+	 *
+	 * @return the resource bundle or <code>null</code> if the resource does not
+	 *         exist
+	 */
+	static ResourceBundle get(long bundleId, long lastModified, String resourceName, ResourceOpener opener)
+			throws IOException {
+		Key key = new Key(bundleId, lastModified, resourceName);
+		Properties properties;
+		synchronized (cache) {
+			properties = cache.get(key);
+		}
+		if (properties == null) {
+			properties = load(opener);
+			synchronized (cache) {
+				Properties existing = cache.putIfAbsent(key, properties);
+				if (existing != null)
+					properties = existing;
+			}
+		}
+		return properties == MISSING ? null : new CompactResourceBundle(properties);
+	}
+
+	private static Properties load(ResourceOpener opener) throws IOException {
+		PropertyResourceBundle parsed;
+		try (InputStream stream = opener.open()) {
+			if (stream == null)
+				return MISSING;
+			// same character decoding as for ResourceBundle.getBundle()
+			parsed = new PropertyResourceBundle(stream);
+		}
+		String[] keys = parsed.keySet().toArray(new String[0]);
+		Arrays.sort(keys);
+		Object[] values = new Object[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			values[i] = parsed.handleGetObject(keys[i]);
+		}
+		return new Properties(keys, values);
+	}
+}
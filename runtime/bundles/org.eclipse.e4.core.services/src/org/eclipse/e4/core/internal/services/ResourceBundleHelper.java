@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2012, 2018 Dirk Fauth and others.
+ * Copyright (c) 2012, 2022 Dirk Fauth and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -26,9 +26,9 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.MissingResourceException;
-import java.util.PropertyResourceBundle;
 import java.util.ResourceBundle;
 import java.util.ResourceBundle.Control;
+import org.eclipse.e4.core.services.nls.Message;
 import org.eclipse.e4.core.services.translation.ResourceBundleProvider;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
@@ -225,6 +225,55 @@ public class ResourceBundleHelper {
 		return result;
 	}
 
+	/**
+	 * Loads the {@link ResourceBundle} for a messages class, searching the location given by its
+	 * {@link Message} annotation, then the bundle with the name of the class relative to it, and
+	 * finally the OSGi resource bundle of its bundle.
+	 *
+	 * @param messages
+	 *            The messages class to load the {@link ResourceBundle} for
+	 * @param locale
+	 *            The {@link Locale} to use for loading the {@link ResourceBundle}
+	 * @param provider
+	 *            The service for retrieving the OSGi resource bundle of a {@link Bundle}
+	 * @return the {@link ResourceBundle} or <code>null</code> if none is found
+	 */
+	@SuppressWarnings("deprecation")
+	public static ResourceBundle getMessagesResourceBundle(Class<?> messages, Locale locale,
+			ResourceBundleProvider provider) {
+		ResourceBundle resourceBundle = null;
+		Message annotation = messages.getAnnotation(Message.class);
+		if (annotation != null) {
+			if (!annotation.contributionURI().isEmpty()) {
+				resourceBundle = getResourceBundleForUri(annotation.contributionURI(), locale, provider);
+			} else if (!annotation.contributorURI().isEmpty()) {
+				resourceBundle = getResourceBundleForUri(annotation.contributorURI(), locale, provider);
+			}
+		}
+
+		if (resourceBundle == null) {
+			// check for the resource bundle relative to the messages class
+			String baseName = messages.getName().replace('.', '/');
+
+			resourceBundle = getEquinoxResourceBundle(baseName, locale, messages.getClassLoader());
+
+			if (resourceBundle == null) {
+				// check for the resource bundle relative to the messages class by searching
+				// the properties file lower case
+				// this is a fix for Linux environments
+				resourceBundle = getEquinoxResourceBundle(baseName.toLowerCase(), locale,
+						messages.getClassLoader());
+			}
+		}
+
+		if (resourceBundle == null) {
+			// retrieve the OSGi resource bundle
+			Bundle bundle = FrameworkUtil.getBundle(messages);
+			resourceBundle = provider.getResourceBundle(bundle, locale.toString());
+		}
+		return resourceBundle;
+	}
+
 	/**
 	 * This method searches for the {@link ResourceBundle} in a modified way by inspecting the
 	 * configuration option <code>equinox.root.locale</code>.
@@ -708,39 +757,44 @@ public class ResourceBundleHelper {
 			ResourceBundle bundle = null;
 			if ("java.properties".equals(format)) { //$NON-NLS-1$
 				final String resourceName = toResourceName(bundleName, "properties"); //$NON-NLS-1$
-				InputStream stream = null;
-				try {
-					stream = AccessController
-							.doPrivileged((PrivilegedExceptionAction<InputStream>) () -> {
-								InputStream is = null;
-								URL url = osgiBundle.getEntry(resourceName);
-								if (url != null) {
-									URLConnection connection = url.openConnection();
-									if (connection != null) {
-										// Disable caches to get fresh data for
-										// reloading.
-										connection.setUseCaches(false);
-										is = connection.getInputStream();
-									}
-								}
-								return is;
-							});
-				} catch (PrivilegedActionException e) {
-					throw (IOException) e.getException();
-				}
-				if (stream != null) {
-					try {
-						bundle = new PropertyResourceBundle(stream);
-					} finally {
-						stream.close();
-					}
-				}
+				bundle = PropertiesBundleCache.get(osgiBundle.getBundleId(), osgiBundle.getLastModified(),
+						resourceName, () -> {
+							try {
+								return AccessController
+										.doPrivileged((PrivilegedExceptionAction<InputStream>) () -> {
+											InputStream is = null;
+											URL url = osgiBundle.getEntry(resourceName);
+											if (url != null) {
+												URLConnection connection = url.openConnection();
+												if (connection != null) {
+													// Disable caches to get fresh data for
+													// reloading.
+													connection.setUseCaches(false);
+													is = connection.getInputStream();
+												}
+											}
+											return is;
+										});
+							} catch (PrivilegedActionException e) {
+								throw (IOException) e.getException();
+							}
+						});
 			} else {
 				throw new IllegalArgumentException("unknown format: " + format); //$NON-NLS-1$
 			}
 			return bundle;
 		}
 
+		/**
+		 * The loaded bundles are cached by {@link PropertiesBundleCache}, keyed by the OSGi
+		 * {@link Bundle}. The cache of {@link ResourceBundle} does not know about the OSGi
+		 * bundle and would mix up bundles with the same base name.
+		 */
+		@Override
+		public long getTimeToLive(String baseName, Locale locale) {
+			return TTL_DONT_CACHE;
+		}
+
 		@Override
 		public List<String> getFormats(String baseName) {
 			return FORMAT_PROPERTIES;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2011, 2017 BestSolution.at and others.
+ * Copyright (c) 2011, 2022 BestSolution.at and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,18 +16,24 @@ package org.eclipse.e4.core.internal.services;
 
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 import javax.inject.Inject;
 import javax.inject.Named;
 import org.eclipse.e4.core.contexts.IEclipseContext;
+import org.eclipse.e4.core.di.IInjector;
+import org.eclipse.e4.core.di.InjectorFactory;
 import org.eclipse.e4.core.di.annotations.Optional;
 import org.eclipse.e4.core.di.suppliers.ExtendedObjectSupplier;
 import org.eclipse.e4.core.di.suppliers.IObjectDescriptor;
@@ -100,10 +106,68 @@ public class TranslationObjectSupplier extends ExtendedObjectSupplier implements
 	/**
 	 * Notify the {@link IRequestor}s of those instances that they need to update their message
 	 * class instances.
+	 * <p>
+	 * Only message classes that are still used by valid requestors are updated. Their
+	 * {@link ResourceBundle}s for the new {@link Locale} are loaded in parallel first, see
+	 * {@link #loadResourceBundles(List)}. The requestors are then updated on the calling thread
+	 * within one update group, so a method injected with several message classes is only called
+	 * once. Message classes injected into separate fields are still updated once per field.
+	 * </p>
 	 */
 	private void updateMessages() {
-		for (Map.Entry<Class<?>, Set<IRequestor>> entry : this.listeners.entrySet()) {
-			notifyRequestor(entry.getValue());
+		List<Class<?>> messageClasses = new ArrayList<>();
+		for (Iterator<Entry<Class<?>, Set<IRequestor>>> it = this.listeners.entrySet().iterator(); it.hasNext();) {
+			Map.Entry<Class<?>, Set<IRequestor>> entry = it.next();
+			entry.getValue().removeIf(requestor -> !requestor.isValid());
+			if (entry.getValue().isEmpty()) {
+				it.remove();
+			} else {
+				messageClasses.add(entry.getKey());
+			}
+		}
+		if (messageClasses.isEmpty()) {
+			return;
+		}
+
+		loadResourceBundles(messageClasses);
+		IInjector injector = InjectorFactory.getDefault();
+		injector.beginUpdates();
+		try {
+			for (Class<?> messageClass : messageClasses) {
+				notifyRequestor(this.listeners.get(messageClass));
+			}
+		} finally {
+			injector.endUpdates();
+		}
+	}
+
+	/**
+	 * Loads the {@link ResourceBundle}s of the given message classes for the current
+	 * {@link Locale} in parallel on the common pool and waits for them. The loaded bundles are
+	 * cached, so the message instances created afterwards on the calling thread, including their
+	 * methods annotated with {@link javax.annotation.PostConstruct}, find them without reading
+	 * them again.
+	 * <p>
+	 * A failed load is not reported here: it is repeated, and reported, when the instance of the
+	 * message class is created.
+	 * </p>
+	 *
+	 * @param messageClasses
+	 *            The message classes to load the {@link ResourceBundle}s for.
+	 */
+	private void loadResourceBundles(List<Class<?>> messageClasses) {
+		Locale bundleLocale = this.locale;
+		ResourceBundleProvider bundleProvider = this.provider;
+		CompletableFuture<?>[] loads = new CompletableFuture<?>[messageClasses.size()];
+		for (int i = 0; i < loads.length; i++) {
+			Class<?> messageClass = messageClasses.get(i);
+			loads[i] = CompletableFuture.runAsync(
+					() -> ResourceBundleHelper.getMessagesResourceBundle(messageClass, bundleLocale, bundleProvider));
+		}
+		try {
+			CompletableFuture.allOf(loads).join();
+		} catch (CompletionException e) {
+			// see above, the instance creation reports the failure
 		}
 	}
 
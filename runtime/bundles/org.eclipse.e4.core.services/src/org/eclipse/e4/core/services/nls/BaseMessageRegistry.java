@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2014, 2018 Dirk Fauth and others.
+ * Copyright (c) 2014, 2022 Dirk Fauth and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,14 +13,23 @@
  *******************************************************************************/
 package org.eclipse.e4.core.services.nls;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import org.eclipse.e4.core.di.annotations.Optional;
@@ -69,6 +78,25 @@ import org.osgi.service.log.LoggerFactory;
  */
 public class BaseMessageRegistry<M> {
 
+	/** (Object control, String value)void */
+	private static final MethodType CONSUMER_TYPE = MethodType.methodType(void.class, Object.class, String.class);
+	/** (Object messages)Object */
+	private static final MethodType SUPPLIER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+	/**
+	 * Handles of the consumer methods and supplier fields by name, shared by all
+	 * registries so that the reflective lookup is done once per class and name.
+	 */
+	private static final ClassValue<ConcurrentMap<String, MethodHandle>> consumerHandles = new HandleCache();
+	private static final ClassValue<ConcurrentMap<String, MethodHandle>> supplierHandles = new HandleCache();
+
+	private static final class HandleCache extends ClassValue<ConcurrentMap<String, MethodHandle>> {
+		@Override
+		protected ConcurrentMap<String, MethodHandle> computeValue(Class<?> type) {
+			return new ConcurrentHashMap<>();
+		}
+	}
+
 	private M messages;
 
 	private final Map<MessageConsumer, MessageSupplier> bindings = new HashMap<>();
@@ -196,8 +224,10 @@ public class BaseMessageRegistry<M> {
 	public void updateMessages(M messages) {
 		//remember the current message instance
 		this.messages = messages;
-		//iterate over all registered consumer
-		for (Map.Entry<MessageConsumer, MessageSupplier> entry : bindings.entrySet()) {
+		//update all registered consumers in a single pass over a snapshot, as a
+		//binding that fails to update removes itself
+		List<Map.Entry<MessageConsumer, MessageSupplier>> entries = new ArrayList<>(bindings.entrySet());
+		for (Map.Entry<MessageConsumer, MessageSupplier> entry : entries) {
 			entry.getKey().accept(entry.getValue().get());
 		}
 	}
@@ -213,11 +243,20 @@ public class BaseMessageRegistry<M> {
 	 *         control, or {@code null} in case of any exception
 	 */
 	protected MessageConsumer createConsumer(final Object control, final String method) {
+		ConcurrentMap<String, MethodHandle> handles = consumerHandles.get(control.getClass());
+		MethodHandle handle = handles.get(method);
+		if (handle != null) {
+			return new MessageConsumerImplementation(handle, method, control);
+		}
 
 		try {
 			final Method m = control.getClass().getMethod(method, String.class);
 			if (m != null) {
-				return new MessageConsumerImplementation(m, control);
+				handle = unreflect(m, () -> MethodHandles.lookup().unreflect(m).asType(CONSUMER_TYPE));
+				if (handle != null) {
+					handles.putIfAbsent(method, handle);
+					return new MessageConsumerImplementation(handle, method, control);
+				}
 			}
 		} catch (NoSuchMethodException e) {
 			Logger log = this.registryLogger;
@@ -236,45 +275,53 @@ public class BaseMessageRegistry<M> {
 		return null;
 	}
 
+	@FunctionalInterface
+	private interface HandleFactory {
+		MethodHandle create() throws IllegalAccessException;
+	}
+
+	/**
+	 * Makes the method or field accessible, so the registry also works well with
+	 * protected or package protected classes, and creates its handle.
+	 *
+	 * @return the handle, or {@code null} if the member cannot be accessed
+	 */
+	private MethodHandle unreflect(AccessibleObject member, HandleFactory factory) {
+		PrivilegedAction<MethodHandle> action = () -> {
+			try {
+				member.setAccessible(true);
+				return factory.create();
+			} catch (IllegalAccessException | RuntimeException e) {
+				Logger log = registryLogger;
+				if (log != null) {
+					log.warn("Error on accessing '{}' with error message '{}'. Binding is not created!", member,
+							e.getMessage());
+				}
+				return null;
+			}
+		};
+		if (System.getSecurityManager() == null) {
+			return action.run();
+		}
+		return AccessController.doPrivileged(action);
+	}
+
 	private final class MessageConsumerImplementation implements MessageConsumer {
-		private final Method m;
+		private final MethodHandle handle;
+		private final String methodName;
 		private final Object control;
 
-		private MessageConsumerImplementation(Method m, Object control) {
-			this.m = m;
+		private MessageConsumerImplementation(MethodHandle handle, String methodName, Object control) {
+			this.handle = handle;
+			this.methodName = methodName;
 			this.control = control;
 		}
 
 		@Override
 		public void accept(final String value) {
 			try {
-				// ensure the method is accessible so the registry
-				// also works well with protected or package
-				// protected classes
-				if (System.getSecurityManager() == null) {
-					m.setAccessible(true);
-					m.invoke(control, value);
-				} else {
-					AccessController.doPrivileged((PrivilegedAction<Object>) () -> {
-						m.setAccessible(true);
-						try {
-							m.invoke(control, value);
-						} catch (Exception e) {
-							// if anything fails on invoke we unregister the
-							// binding to avoid further issues e.g. this can
-							// happen in case of disposed SWT controls
-							bindings.remove(MessageConsumerImplementation.this);
-							Logger log = consumerLogger;
-							if (log != null) {
-								log.info(
-										"Error on invoke '{}' on '{}' with error message '{}'. Binding is removed.",
-										m.getName(), control.getClass(), e.getMessage());
-							}
-						}
-						return null;
-					});
-				}
-			} catch (Exception e) {
+				handle.invokeExact(control, value);
+			} catch (Throwable e) {
 				// if anything fails on invoke we unregister the binding to
 				// avoid further issues
 				// e.g. this can happen in case of disposed SWT controls
@@ -282,7 +329,7 @@ public class BaseMessageRegistry<M> {
 				Logger log = consumerLogger;
 				if (log != null) {
 					log.info("Error on invoke '{}' on '{}' with error message '{}'. Binding is removed.",
-							m.getName(), control.getClass(), e.getMessage());
+							methodName, control.getClass(), e.getMessage());
 				}
 			}
 		}
@@ -295,10 +342,25 @@ public class BaseMessageRegistry<M> {
 	 * @return A MessageSupplier that returns the message value for the given message key
 	 */
 	protected MessageSupplier createSupplier(final String messageKey) {
+		ConcurrentMap<String, MethodHandle> handles = supplierHandles.get(messages.getClass());
+		MethodHandle handle = handles.get(messageKey);
+		if (handle != null) {
+			return new MessageSupplierImplementation(handle, messageKey);
+		}
+
 		try {
 			final Field f = messages.getClass().getField(messageKey);
 			if (f != null) {
-				return new MessageSupplierImplementation(f);
+				handle = unreflect(f, () -> {
+					MethodHandle getter = MethodHandles.lookup().unreflectGetter(f);
+					if (Modifier.isStatic(f.getModifiers()))
+						getter = MethodHandles.dropArguments(getter, 0, Object.class);
+					return getter.asType(SUPPLIER_TYPE);
+				});
+				if (handle != null) {
+					handles.putIfAbsent(messageKey, handle);
+					return new MessageSupplierImplementation(handle, messageKey);
+				}
 			}
 		} catch (NoSuchFieldException e) {
 			Logger log = this.registryLogger;
@@ -319,18 +381,21 @@ public class BaseMessageRegistry<M> {
 	}
 
 	private final class MessageSupplierImplementation implements MessageSupplier {
-		private final Field f;
+		private final MethodHandle handle;
+		private final String fieldName;
 
-		private MessageSupplierImplementation(Field f) {
-			this.f = f;
+		private MessageSupplierImplementation(MethodHandle handle, String fieldName) {
+			this.handle = handle;
+			this.fieldName = fieldName;
 		}
 
 		@Override
 		public String get() {
 			String message = null;
 			try {
-				message = (String) f.get(messages);
-			} catch (Exception e) {
+				Object value = handle.invokeExact((Object) messages);
+				message = (String) value;
+			} catch (Throwable e) {
 				// if anything fails on invoke we unregister the binding to
 				// avoid further issues
 				// e.g. this can happen in case of disposed SWT controls
@@ -343,7 +408,7 @@ public class BaseMessageRegistry<M> {
 				Logger log = supplierLogger;
 				if (log != null) {
 					log.info("Error on invoke '{}' on '{}' with error message '{}'. Binding is removed.",
-							f.getName(), messages.getClass(), e.getMessage());
+							fieldName, messages.getClass(), e.getMessage());
 				}
 			}
 			return message;
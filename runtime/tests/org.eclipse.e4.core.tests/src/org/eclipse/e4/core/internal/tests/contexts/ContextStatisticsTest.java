@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.core.internal.tests.contexts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import org.eclipse.e4.core.contexts.ContextFunction;
+import org.eclipse.e4.core.contexts.EclipseContextFactory;
+import org.eclipse.e4.core.contexts.IEclipseContext;
+import org.eclipse.e4.core.contexts.RunAndTrack;
+import org.eclipse.e4.core.internal.contexts.ContextStatistics;
+import org.eclipse.e4.core.internal.contexts.ContextStatistics.KeyStatistics;
+import org.eclipse.e4.core.internal.contexts.EclipseContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ContextStatisticsTest {
+
+	private boolean wasEnabled;
+
+	@Before
+	public void setUp() {
+		wasEnabled = ContextStatistics.isEnabled();
+		ContextStatistics.setEnabled(true);
+		ContextStatistics.reset();
+	}
+
+	@After
+	public void tearDown() {
+		ContextStatistics.setEnabled(wasEnabled);
+		ContextStatistics.reset();
+	}
+
+	@Test
+	public void testLookupDepth() {
+		IEclipseContext root = EclipseContextFactory.create("root");
+		IEclipseContext child = root.createChild("child");
+		IEclipseContext leaf = child.createChild("leaf");
+		root.set("a", "a");
+
+		leaf.get("a");
+		leaf.get("a");
+		root.get("a");
+
+		KeyStatistics statistics = ContextStatistics.getKeyStatistics().get("a");
+		assertNotNull(statistics);
+		assertEquals(3, statistics.getLookups());
+		assertEquals(2, statistics.getMaxLookupDepth());
+		assertEquals(4.0 / 3, statistics.getAverageLookupDepth(), 0.001);
+	}
+
+	@Test
+	public void testFunctionEvaluationsAndFanOut() {
+		IEclipseContext root = EclipseContextFactory.create("root");
+		IEclipseContext child = root.createChild("child");
+		root.set("input", 1);
+		root.set("computed", new ContextFunction() {
+			@Override
+			public Object compute(IEclipseContext context, String contextKey) {
+				return context.get("input");
+			}
+		});
+		int[] runs = new int[1];
+		child.runAndTrack(new RunAndTrack() {
+			@Override
+			public boolean changed(IEclipseContext context) {
+				context.get("computed");
+				runs[0]++;
+				return true;
+			}
+		});
+
+		root.set("input", 2);
+
+		assertEquals(2, runs[0]);
+		KeyStatistics computed = ContextStatistics.getKeyStatistics().get("computed");
+		assertEquals(2, computed.getFunctionEvaluations());
+		KeyStatistics input = ContextStatistics.getKeyStatistics().get("input");
+		assertEquals(2, input.getModifications());
+		assertEquals(1, input.getScheduledUpdates());
+		assertTrue(input.getInvalidations() > 0);
+	}
+
+	@Test
+	public void testDump() {
+		IEclipseContext root = EclipseContextFactory.create("root");
+		IEclipseContext child = root.createChild("child");
+		root.set("a", "a");
+		child.runAndTrack(new RunAndTrack() {
+			@Override
+			public boolean changed(IEclipseContext context) {
+				context.get("a");
+				return true;
+			}
+		});
+
+		List<KeyStatistics> hotKeys = ContextStatistics.getHotKeys(1);
+		assertEquals(1, hotKeys.size());
+		String dump = ContextStatistics.dump((EclipseContext) root, 10);
+		assertTrue(dump, dump.contains("Contexts: 2"));
+		assertTrue(dump, dump.contains("a: 1"));
+	}
+
+	@Test
+	public void testDisabled() {
+		ContextStatistics.setEnabled(false);
+		IEclipseContext root = EclipseContextFactory.create("root");
+		root.set("a", "a");
+		root.get("a");
+		assertFalse(ContextStatistics.getKeyStatistics().containsKey("a"));
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2021 IBM Corporation and others.
+ * Copyright (c) 2009, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,7 +16,9 @@ package org.eclipse.e4.core.internal.tests.contexts;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import org.eclipse.e4.core.contexts.ContextFunction;
@@ -384,6 +386,63 @@ public class EclipseContextTest {
 		parent.dispose();
 	}
 
+	@Test
+	public void testSharedContextFunctionResult() {
+		IEclipseContext parent = EclipseContextFactory.create("ParentContext");
+		IEclipseContext child1 = parent.createChild();
+		IEclipseContext child2 = parent.createChild();
+		IEclipseContext child3 = parent.createChild();
+		parent.set("input", "a");
+		int[] evaluations = new int[1];
+		parent.set("shared", new ContextFunction() {
+			@Override
+			public Object compute(IEclipseContext context, String contextKey) {
+				evaluations[0]++;
+				return new StringBuilder((String) context.get("input"));
+			}
+
+			@Override
+			public String[] getResultDependencies() {
+				return new String[] { "input" };
+			}
+		});
+
+		Object result = child1.get("shared");
+		assertSame(result, child2.get("shared"));
+		assertEquals(1, evaluations[0]);
+
+		// a different value for a dependency computes a separate result
+		child3.set("input", "b");
+		assertEquals("b", child3.get("shared").toString());
+		assertEquals(2, evaluations[0]);
+
+		// changing a dependency invalidates the cached values
+		parent.set("input", "c");
+		Object changed = child1.get("shared");
+		assertNotSame(result, changed);
+		assertEquals("c", changed.toString());
+		assertSame(changed, child2.get("shared"));
+		assertEquals(3, evaluations[0]);
+		parent.dispose();
+	}
+
+	@Test
+	public void testUnsharedContextFunctionResult() {
+		IEclipseContext parent = EclipseContextFactory.create("ParentContext");
+		IEclipseContext child1 = parent.createChild();
+		IEclipseContext child2 = parent.createChild();
+		parent.set("input", "a");
+		parent.set("unshared", new ContextFunction() {
+			@Override
+			public Object compute(IEclipseContext context, String contextKey) {
+				return new StringBuilder((String) context.get("input"));
+			}
+		});
+
+		assertNotSame(child1.get("unshared"), child2.get("unshared"));
+		parent.dispose();
+	}
+
 	@Test
 	public void testContextFunctionOrdering() {
 		IEclipseContext osgiContext = EclipseContextFactory.getServiceContext(FrameworkUtil.getBundle(getClass()).getBundleContext());
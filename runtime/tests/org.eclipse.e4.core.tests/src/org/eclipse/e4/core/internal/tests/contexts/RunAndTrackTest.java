@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2015 IBM Corporation and others.
+ * Copyright (c) 2009, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,11 +16,17 @@
 package org.eclipse.e4.core.internal.tests.contexts;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.e4.core.contexts.ContextFunction;
 import org.eclipse.e4.core.contexts.EclipseContextFactory;
@@ -405,6 +411,92 @@ public class RunAndTrackTest {
 
 	}
 
+	/**
+	 * Tests that updates of a RAT declaring an executor are coalesced and run on
+	 * that executor, while the initial run happens synchronously.
+	 */
+	@Test
+	public void testExecutorCoalescesUpdates() {
+		final IEclipseContext root = EclipseContextFactory.create("root");
+		createdContexts.add(root);
+		root.set("v", "initial");
+		List<Runnable> tasks = new ArrayList<>();
+		final List<Object> seen = new ArrayList<>();
+		root.runAndTrack(new RunAndTrack() {
+			@Override
+			public boolean changed(IEclipseContext context) {
+				seen.add(context.get("v"));
+				return true;
+			}
+
+			@Override
+			public Executor getExecutor() {
+				return tasks::add;
+			}
+		});
+		assertEquals(List.of("initial"), seen);
+
+		root.set("v", "a");
+		root.set("v", "b");
+		root.set("v", "c");
+		assertEquals(List.of("initial"), seen);
+		assertEquals(1, tasks.size());
+
+		tasks.remove(0).run();
+		assertEquals(List.of("initial", "c"), seen);
+
+		root.set("v", "d");
+		assertEquals(1, tasks.size());
+		tasks.remove(0).run();
+		assertEquals(List.of("initial", "c", "d"), seen);
+	}
+
+	/**
+	 * Tests that dependencies accessed while running on an executor thread are
+	 * recorded.
+	 */
+	@Test
+	public void testExecutorRecordsDependencies() throws InterruptedException {
+		final IEclipseContext root = EclipseContextFactory.create("root");
+		createdContexts.add(root);
+		root.set("switch", Boolean.FALSE);
+		root.set("other", "x");
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			final List<Thread> threads = new ArrayList<>();
+			final CountDownLatch[] latch = new CountDownLatch[] { new CountDownLatch(0) };
+			root.runAndTrack(new RunAndTrack() {
+				@Override
+				public boolean changed(IEclipseContext context) {
+					if (Boolean.TRUE.equals(context.get("switch")))
+						context.get("other");
+					threads.add(Thread.currentThread());
+					latch[0].countDown();
+					return true;
+				}
+
+				@Override
+				public Executor getExecutor() {
+					return executor;
+				}
+			});
+			assertEquals(Thread.currentThread(), threads.get(0));
+
+			latch[0] = new CountDownLatch(1);
+			root.set("switch", Boolean.TRUE);
+			assertTrue(latch[0].await(10, TimeUnit.SECONDS));
+			assertNotEquals(Thread.currentThread(), threads.get(1));
+
+			// "other" was first accessed on the executor thread
+			latch[0] = new CountDownLatch(1);
+			root.set("other", "y");
+			assertTrue(latch[0].await(10, TimeUnit.SECONDS));
+			assertEquals(3, threads.size());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
 	/**
 	 * Creates a context, sets a variable 'v' to "root", creates a RAT dependent on 'v' in the context,
 	 * then executes <code>testAction</code> and tests whether the RAT ran the expected number of times,
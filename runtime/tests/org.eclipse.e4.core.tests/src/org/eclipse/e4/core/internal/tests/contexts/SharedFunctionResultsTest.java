@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.core.internal.tests.contexts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.eclipse.e4.core.contexts.ContextFunction;
+import org.eclipse.e4.core.contexts.EclipseContextFactory;
+import org.eclipse.e4.core.contexts.IContextFunction;
+import org.eclipse.e4.core.contexts.IEclipseContext;
+import org.eclipse.e4.core.internal.contexts.EclipseContext;
+import org.eclipse.e4.core.internal.contexts.SharedFunctionResults;
+import org.junit.Test;
+
+public class SharedFunctionResultsTest {
+
+	private final IContextFunction function = new ContextFunction() {
+		@Override
+		public Object compute(IEclipseContext context, String contextKey) {
+			return null;
+		}
+	};
+
+	private int evaluations;
+
+	private Object get(SharedFunctionResults results, Object value, EclipseContext context) {
+		return results.get(function, "key", new Object[] { value }, context, () -> {
+			evaluations++;
+			return new StringBuilder(String.valueOf(value));
+		});
+	}
+
+	@Test
+	public void testEviction() {
+		EclipseContext context = (EclipseContext) EclipseContextFactory.create();
+		SharedFunctionResults results = new SharedFunctionResults(2);
+		String a = "a";
+		String b = "b";
+		String c = "c";
+		Object resultA = get(results, a, context);
+		Object resultB = get(results, b, context);
+		assertSame(resultA, get(results, a, context));
+		assertEquals(2, evaluations);
+
+		// the least recently used result is evicted
+		Object resultC = get(results, c, context);
+		assertEquals(2, results.size());
+		assertSame(resultA, get(results, a, context));
+		assertSame(resultC, get(results, c, context));
+		assertEquals(3, evaluations);
+		assertNotSame(resultB, get(results, b, context));
+		assertEquals(4, evaluations);
+		context.dispose();
+	}
+
+	@Test
+	public void testRemoveContext() {
+		EclipseContext context1 = (EclipseContext) EclipseContextFactory.create();
+		EclipseContext context2 = (EclipseContext) EclipseContextFactory.create();
+		SharedFunctionResults results = new SharedFunctionResults(10);
+		String a = "a";
+		String b = "b";
+		Object resultA = get(results, a, context1);
+		Object resultB = get(results, b, context2);
+		assertEquals(2, results.size());
+
+		results.remove(context1);
+		assertEquals(1, results.size());
+		assertSame(resultB, get(results, b, context1));
+		assertNotSame(resultA, get(results, a, context2));
+		assertEquals(3, evaluations);
+		context1.dispose();
+		context2.dispose();
+	}
+
+	@Test
+	public void testDisposeOriginatingContext() {
+		IEclipseContext parent = EclipseContextFactory.create("ParentContext");
+		IEclipseContext child1 = parent.createChild();
+		IEclipseContext child2 = parent.createChild();
+		IEclipseContext child3 = parent.createChild();
+		parent.set("input", "a");
+		parent.set("shared", new ContextFunction() {
+			@Override
+			public Object compute(IEclipseContext context, String contextKey) {
+				evaluations++;
+				return new StringBuilder((String) context.get("input"));
+			}
+
+			@Override
+			public String[] getResultDependencies() {
+				return new String[] { "input" };
+			}
+		});
+
+		Object result = child1.get("shared");
+		assertSame(result, child2.get("shared"));
+		assertEquals(1, evaluations);
+
+		// the result computed for the disposed context is not shared anymore
+		child1.dispose();
+		assertNotSame(result, child3.get("shared"));
+		assertEquals(2, evaluations);
+		parent.dispose();
+	}
+
+	@Test
+	public void testSeparateRoots() {
+		IContextFunction shared = new ContextFunction() {
+			@Override
+			public Object compute(IEclipseContext context, String contextKey) {
+				evaluations++;
+				return new StringBuilder((String) context.get("input"));
+			}
+
+			@Override
+			public String[] getResultDependencies() {
+				return new String[] { "input" };
+			}
+		};
+		IEclipseContext root1 = EclipseContextFactory.create("Root1");
+		IEclipseContext root2 = EclipseContextFactory.create("Root2");
+		root1.set("input", "a");
+		root1.set("shared", shared);
+		root2.set("input", "a");
+		root2.set("shared", shared);
+
+		// results are only shared below the same root
+		assertNotSame(root1.createChild().get("shared"), root2.createChild().get("shared"));
+		assertEquals(2, evaluations);
+		root1.dispose();
+		root2.dispose();
+	}
+}
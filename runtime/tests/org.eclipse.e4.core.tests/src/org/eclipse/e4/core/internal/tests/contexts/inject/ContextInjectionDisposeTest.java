@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2015 IBM Corporation and others.
+ * Copyright (c) 2009, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,16 +15,24 @@
 package org.eclipse.e4.core.internal.tests.contexts.inject;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 
 import org.eclipse.e4.core.contexts.ContextInjectionFactory;
 import org.eclipse.e4.core.contexts.EclipseContextFactory;
 import org.eclipse.e4.core.contexts.IEclipseContext;
+import org.eclipse.e4.core.di.annotations.ConcurrentPreDestroy;
 import org.eclipse.e4.core.di.annotations.Optional;
 import org.junit.Test;
 
@@ -135,4 +143,98 @@ public class ContextInjectionDisposeTest {
 		assertTrue(object.disposeInvoked);
 	}
 
+	@Test
+	public void testDisposeManyObjects() {
+		class Injected {
+			final List<Injected> disposed;
+
+			@Inject
+			String field;
+
+			Injected(List<Injected> disposed) {
+				this.disposed = disposed;
+			}
+
+			@PreDestroy
+			public void dispose() {
+				disposed.add(this);
+			}
+		}
+		IEclipseContext context = EclipseContextFactory.create();
+		context.set(String.class, "hello");
+		List<Injected> disposed = new ArrayList<>();
+		List<Injected> objects = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			Injected object = new Injected(disposed);
+			ContextInjectionFactory.inject(object, context);
+			objects.add(object);
+		}
+		// injecting again does not register the object twice
+		ContextInjectionFactory.inject(objects.get(0), context);
+		ContextInjectionFactory.uninject(objects.get(1), context);
+		assertEquals(1, disposed.size());
+		context.dispose();
+
+		// pre-destroy methods are called once, in the order of injection
+		assertEquals(objects.size(), disposed.size());
+		assertEquals(objects.get(1), disposed.get(0));
+		assertEquals(objects.get(0), disposed.get(1));
+		assertEquals(objects.subList(2, objects.size()), disposed.subList(2, disposed.size()));
+	}
+
+	@ConcurrentPreDestroy
+	static class ConcurrentInjected {
+		final Set<Thread> threads;
+		boolean disposeInvoked = false;
+
+		@Inject
+		String field;
+
+		ConcurrentInjected(Set<Thread> threads) {
+			this.threads = threads;
+		}
+
+		@PreDestroy
+		public void dispose(String value) {
+			assertEquals("hello", value);
+			threads.add(Thread.currentThread());
+			disposeInvoked = true;
+		}
+	}
+
+	@Test
+	public void testConcurrentPreDestroy() {
+		class Injected {
+			boolean disposeInvoked = false;
+
+			@Inject
+			String field;
+
+			@PreDestroy
+			public void dispose() {
+				disposeInvoked = true;
+			}
+		}
+		IEclipseContext context = EclipseContextFactory.create();
+		context.set(String.class, "hello");
+		Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<>());
+		List<ConcurrentInjected> concurrentObjects = new ArrayList<>();
+		List<Injected> objects = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			ConcurrentInjected concurrentObject = new ConcurrentInjected(threads);
+			ContextInjectionFactory.inject(concurrentObject, context);
+			concurrentObjects.add(concurrentObject);
+			Injected object = new Injected();
+			ContextInjectionFactory.inject(object, context);
+			objects.add(object);
+		}
+		context.dispose();
+
+		// all pre-destroy methods have completed when dispose returns
+		for (ConcurrentInjected object : concurrentObjects)
+			assertTrue(object.disposeInvoked);
+		for (Injected object : objects)
+			assertTrue(object.disposeInvoked);
+		assertFalse(threads.contains(Thread.currentThread()));
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2015 IBM Corporation and others.
+ * Copyright (c) 2010, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,6 +15,10 @@
 package org.eclipse.e4.core.internal.tests.contexts.inject;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -22,6 +26,8 @@ import javax.inject.Named;
 import org.eclipse.e4.core.contexts.ContextInjectionFactory;
 import org.eclipse.e4.core.contexts.EclipseContextFactory;
 import org.eclipse.e4.core.contexts.IEclipseContext;
+import org.eclipse.e4.core.di.IInjector;
+import org.eclipse.e4.core.di.InjectorFactory;
 import org.eclipse.e4.core.di.annotations.GroupUpdates;
 import org.junit.Test;
 
@@ -139,4 +145,101 @@ public class GroupedUpdatesTest {
 		assertEquals(target.s1, "delta");
 		assertEquals(target.s2, "z");
 	}
+
+	static class InjectTargetOrder {
+		List<String> calls = new ArrayList<>();
+
+		@Inject
+		void setFirst(@Named("string1") String s) {
+			calls.add("first:" + s);
+		}
+
+		@Inject
+		void setSecond(@Named("string2") String s) {
+			calls.add("second:" + s);
+		}
+	}
+
+	@Test
+	public void testUpdateGroup() {
+		IInjector injector = InjectorFactory.getDefault();
+		IEclipseContext context = EclipseContextFactory.create();
+		context.set("string1", "x");
+		context.set("string2", "y");
+
+		InjectTarget target = new InjectTargetImmediate();
+		ContextInjectionFactory.inject(target, context);
+		target.resetCounters();
+
+		injector.beginUpdates();
+		try {
+			context.set("string1", "a");
+			context.set("string2", "b");
+			context.set("string2", "c");
+			assertEquals(0, target.countMain);
+			assertEquals(0, target.countSecondary);
+		} finally {
+			injector.endUpdates();
+		}
+		assertEquals(1, target.countMain);
+		assertEquals(1, target.countSecondary);
+		assertEquals("a", target.s1);
+		assertEquals("c", target.s2);
+
+		// outside of the group updates are immediate again
+		context.set("string1", "d");
+		assertEquals(2, target.countMain);
+	}
+
+	@Test
+	public void testUpdateGroupOrder() {
+		IInjector injector = InjectorFactory.getDefault();
+		IEclipseContext context = EclipseContextFactory.create();
+		context.set("string1", "x");
+		context.set("string2", "y");
+
+		InjectTargetOrder target = new InjectTargetOrder();
+		ContextInjectionFactory.inject(target, context);
+		target.calls.clear();
+
+		injector.beginUpdates();
+		injector.beginUpdates(); // nested
+		context.set("string2", "a");
+		context.set("string1", "b");
+		injector.endUpdates();
+		assertTrue(target.calls.isEmpty());
+		context.set("string2", "c");
+		injector.endUpdates();
+
+		// in the order of the first change, with the latest values
+		assertEquals(List.of("second:c", "first:b"), target.calls);
+	}
+
+	@Test
+	public void testUpdateGroupUninject() {
+		IInjector injector = InjectorFactory.getDefault();
+		IEclipseContext context = EclipseContextFactory.create();
+		context.set("string1", "x");
+		context.set("string2", "y");
+
+		InjectTarget target = new InjectTargetImmediate();
+		ContextInjectionFactory.inject(target, context);
+		target.resetCounters();
+
+		injector.beginUpdates();
+		try {
+			context.set("string1", "a");
+			ContextInjectionFactory.uninject(target, context);
+		} finally {
+			injector.endUpdates();
+		}
+		// the deferred update is dropped for the uninjected object
+		assertEquals(0, target.countMain);
+		assertEquals("x", target.s1);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testUnbalancedUpdateGroup() {
+		InjectorFactory.getDefault().endUpdates();
+	}
 }
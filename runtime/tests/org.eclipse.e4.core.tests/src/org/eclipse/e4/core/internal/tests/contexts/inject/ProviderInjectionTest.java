@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2015 IBM Corporation and others.
+ * Copyright (c) 2009, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,8 +16,11 @@ package org.eclipse.e4.core.internal.tests.contexts.inject;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Provider;
 
 import org.eclipse.e4.core.contexts.ContextInjectionFactory;
@@ -65,6 +68,24 @@ public class ProviderInjectionTest {
 		}
 	}
 
+	static public class TestMethodClass {
+		public Provider<TestData> provider;
+		public String value;
+
+		@Inject
+		public void set(Provider<TestData> provider, @Named("value") String value) {
+			this.provider = provider;
+			this.value = value;
+		}
+	}
+
+	static public class TestDataExtension extends TestData {
+		@Inject
+		public TestDataExtension(String tmp) {
+			super(tmp + "-extended");
+		}
+	}
+
 	@Test
 	public synchronized void testInvokeWithProvider() {
 
@@ -97,4 +118,41 @@ public class ProviderInjectionTest {
 		assertEquals("abc", userObject.provider.get().data);
 	}
 
+	@Test
+	public synchronized void testProviderReusedOnReinjection() {
+		IEclipseContext context = EclipseContextFactory.create();
+		context.set(String.class.getName(), "abc");
+		context.set("value", "a");
+		IInjector injector = InjectorFactory.getDefault();
+		injector.addBinding(TestData.class);
+
+		TestMethodClass userObject = ContextInjectionFactory.make(TestMethodClass.class, context);
+		Provider<TestData> provider = userObject.provider;
+		assertNotNull(provider);
+
+		context.set("value", "b");
+		assertEquals("b", userObject.value);
+		assertSame(provider, userObject.provider);
+		assertEquals("abc", provider.get().data);
+	}
+
+	@Test
+	public synchronized void testProviderFollowsBindings() {
+		IEclipseContext context = EclipseContextFactory.create();
+		context.set(String.class.getName(), "abc");
+		IInjector injector = InjectorFactory.getDefault();
+		injector.addBinding(TestData.class);
+
+		TestConstructorClass userObject = ContextInjectionFactory.make(TestConstructorClass.class, context);
+		assertEquals("abc", userObject.provider.get().data);
+
+		injector.addBinding(TestData.class).implementedBy(TestDataExtension.class);
+		try {
+			TestData data = userObject.provider.get();
+			assertTrue(data instanceof TestDataExtension);
+			assertEquals("abc-extended", data.data);
+		} finally {
+			injector.addBinding(TestData.class);
+		}
+	}
 }
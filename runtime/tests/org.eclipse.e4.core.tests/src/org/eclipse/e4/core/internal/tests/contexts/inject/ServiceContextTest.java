@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2017 IBM Corporation and others.
+ * Copyright (c) 2009, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -280,6 +280,49 @@ public class ServiceContextTest {
 		reg1.unregister();
 	}
 
+	@Test
+	public void testServiceRegisteredAfterCachedMiss() {
+		BundleContext bundleContext = CoreTestsActivator.getDefault().getBundleContext();
+		String name = IPaletteService.class.getName();
+		assertNull(context.get(name));
+
+		// the cached miss is replaced by the registered service
+		ServiceRegistration<?> reg = bundleContext.registerService(name, new PaletteImpl(Color.RED), null);
+		ensureUnregistered(reg);
+		IPaletteService palette = (IPaletteService) context.get(name);
+		assertNotNull(palette);
+		assertEquals(Color.RED, palette.getColor());
+		assertSame(palette, context.get(name));
+	}
+
+	@Test
+	public void testServiceUnregisteredAfterCachedHit() {
+		BundleContext bundleContext = CoreTestsActivator.getDefault().getBundleContext();
+		String name = IPaletteService.class.getName();
+		ServiceRegistration<?> reg1 = bundleContext.registerService(name, new PaletteImpl(Color.RED), null);
+		ensureUnregistered(reg1);
+		assertEquals(Color.RED, ((IPaletteService) context.get(name)).getColor());
+		final int[] changes = new int[1];
+		context.runAndTrack(new RunAndTrack() {
+			@Override
+			public boolean changed(IEclipseContext context) {
+				context.get(name);
+				changes[0]++;
+				return true;
+			}
+		});
+
+		// the cached service is dropped and the change is propagated
+		reg1.unregister();
+		assertNull(context.get(name));
+		assertEquals(2, changes[0]);
+
+		ServiceRegistration<?> reg2 = bundleContext.registerService(name, new PaletteImpl(Color.BLUE), null);
+		ensureUnregistered(reg2);
+		assertEquals(Color.BLUE, ((IPaletteService) context.get(name)).getColor());
+		assertEquals(3, changes[0]);
+	}
+
 	@Test
 	public void testServiceExample() {
 		BundleContext bundleContext = CoreTestsActivator.getDefault().getBundleContext();
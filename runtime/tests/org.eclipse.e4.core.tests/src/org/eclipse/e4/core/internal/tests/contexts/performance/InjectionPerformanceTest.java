@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.e4.core.internal.tests.contexts.performance;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import org.eclipse.core.tests.harness.PerformanceTestRunner;
+import org.eclipse.e4.core.contexts.ContextInjectionFactory;
+import org.eclipse.e4.core.contexts.EclipseContextFactory;
+import org.eclipse.e4.core.contexts.IEclipseContext;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Measures repeated injection of the same classes.
+ */
+public class InjectionPerformanceTest extends TestCase {
+
+	public static class BaseObject {
+		@Inject
+		@Named("a")
+		String a;
+
+		String b;
+
+		@Inject
+		public void setB(@Named("b") String b) {
+			this.b = b;
+		}
+	}
+
+	public static class TestObject extends BaseObject {
+		@Inject
+		@Named("c")
+		String c;
+
+		@Inject
+		@Named("d")
+		Integer d;
+
+		String e;
+
+		@Inject
+		public TestObject() {
+			// injected
+		}
+
+		@Inject
+		public void setE(@Named("e") String e, @Named("d") Integer d) {
+			this.e = e + d;
+		}
+	}
+
+	IEclipseContext context;
+
+	public static Test suite() {
+		return new TestSuite(InjectionPerformanceTest.class);
+	}
+
+	public InjectionPerformanceTest(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		context = EclipseContextFactory.create(getName());
+		context.set("a", "a");
+		context.set("b", "b");
+		context.set("c", "c");
+		context.set("d", Integer.valueOf(1));
+		context.set("e", "e");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		context.dispose();
+		super.tearDown();
+	}
+
+	public void testInject() {
+		new PerformanceTestRunner() {
+			@Override
+			protected void test() {
+				TestObject object = new TestObject();
+				ContextInjectionFactory.inject(object, context);
+				ContextInjectionFactory.uninject(object, context);
+			}
+		}.run(this, 10, 20000);
+	}
+
+	public void testMake() {
+		new PerformanceTestRunner() {
+			@Override
+			protected void test() {
+				TestObject object = ContextInjectionFactory.make(TestObject.class, context);
+				ContextInjectionFactory.uninject(object, context);
+			}
+		}.run(this, 10, 20000);
+	}
+}
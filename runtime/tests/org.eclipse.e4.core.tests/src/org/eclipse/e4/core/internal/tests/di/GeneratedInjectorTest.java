@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.core.internal.tests.di;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import org.eclipse.e4.core.contexts.ContextInjectionFactory;
+import org.eclipse.e4.core.contexts.EclipseContextFactory;
+import org.eclipse.e4.core.contexts.IEclipseContext;
+import org.eclipse.e4.core.di.annotations.processor.InjectorProcessor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Compiles a fixture class with the {@link InjectorProcessor} and checks that
+ * the generated injector is used for it.
+ */
+public class GeneratedInjectorTest {
+
+	private static final String TARGET = String.join("\n", //
+			"package fixture;", //
+			"import java.util.function.Supplier;", //
+			"import javax.annotation.PostConstruct;", //
+			"import javax.inject.Inject;", //
+			"import javax.inject.Named;", //
+			"public class Target implements Supplier<String> {", //
+			"	@Inject @Named(\"field\") String field;", //
+			"	@Inject @Named(\"privateField\") private String privateField;", //
+			"	String method;", //
+			"	String injector;", //
+			"	@Inject public Target() {}", //
+			"	@Inject void setMethod(@Named(\"method\") String method, @Named(\"count\") int count) {", //
+			"		this.method = method + count;", //
+			"	}", //
+			"	@PostConstruct void postConstruct() {", //
+			"		for (StackTraceElement element : new Throwable().getStackTrace()) {", //
+			"			if (element.getClassName().endsWith(\"$$E4Injector\")) injector = element.getClassName();", //
+			"		}", //
+			"	}", //
+			"	@Override public String get() {", //
+			"		return field + ',' + privateField + ',' + method + ',' + injector;", //
+			"	}", //
+			"}");
+
+	private Path directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("generatedInjector");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		try (Stream<Path> paths = Files.walk(directory)) {
+			paths.sorted(Collections.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+	}
+
+	private URLClassLoader compile(String className, String source) throws Exception {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		assumeTrue("No compiler available", compiler != null);
+		Path sourceFile = directory.resolve("src").resolve(className.replace('.', '/') + ".java");
+		Files.createDirectories(sourceFile.getParent());
+		Files.write(sourceFile, source.getBytes(StandardCharsets.UTF_8));
+		File classes = Files.createDirectories(directory.resolve("classes")).toFile();
+		File generated = Files.createDirectories(directory.resolve("generated")).toFile();
+
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null,
+				StandardCharsets.UTF_8)) {
+			fileManager.setLocation(StandardLocation.CLASS_PATH,
+					Arrays.asList(getLocation(Inject.class), getLocation(PostConstruct.class)));
+			fileManager.setLocation(StandardLocation.CLASS_OUTPUT, List.of(classes));
+			fileManager.setLocation(StandardLocation.SOURCE_OUTPUT, List.of(generated));
+			JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+					List.of("--release", "11"), null, fileManager.getJavaFileObjects(sourceFile.toFile()));
+			task.setProcessors(List.of(new InjectorProcessor()));
+			assertTrue(diagnostics.getDiagnostics().toString(), task.call());
+		}
+		assertTrue(new File(generated, className.replace('.', '/') + InjectorProcessor.SUFFIX + ".java").exists());
+		return new URLClassLoader(new URL[] { classes.toURI().toURL() }, getClass().getClassLoader());
+	}
+
+	private static File getLocation(Class<?> type) throws URISyntaxException {
+		return new File(type.getProtectionDomain().getCodeSource().getLocation().toURI());
+	}
+
+	@Test
+	public void testGeneratedMembers() throws Exception {
+		try (URLClassLoader loader = compile("fixture.Target", TARGET)) {
+			Class<?> injector = loader.loadClass("fixture.Target" + InjectorProcessor.SUFFIX);
+			// the private field is left to reflection
+			assertArrayEquals(
+					new String[] { "field", "<init>()", "setMethod(java.lang.String,int)", "postConstruct()" },
+					(String[]) injector.getField("MEMBERS").get(null));
+		}
+	}
+
+	@Test
+	public void testGeneratedInjector() throws Exception {
+		IEclipseContext context = EclipseContextFactory.create();
+		context.set("field", "a");
+		context.set("privateField", "b");
+		context.set("method", "c");
+		context.set("count", Integer.valueOf(1));
+
+		try (URLClassLoader loader = compile("fixture.Target", TARGET)) {
+			Object target = ContextInjectionFactory.make(loader.loadClass("fixture.Target"), context);
+			@SuppressWarnings("unchecked")
+			Supplier<String> values = (Supplier<String>) target;
+			assertEquals("a,b,c1,fixture.Target$$E4Injector", values.get());
+
+			context.set("field", "d");
+			assertEquals("d,b,c1,fixture.Target$$E4Injector", values.get());
+		}
+		context.dispose();
+	}
+}
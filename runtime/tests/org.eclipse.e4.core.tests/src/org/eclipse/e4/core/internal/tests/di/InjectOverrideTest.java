@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.e4.core.internal.tests.di;
+
+import static org.junit.Assert.assertEquals;
+
+import javax.inject.Inject;
+
+import org.eclipse.e4.core.contexts.ContextInjectionFactory;
+import org.eclipse.e4.core.contexts.EclipseContextFactory;
+import org.eclipse.e4.core.contexts.IEclipseContext;
+import org.junit.Test;
+
+/**
+ * Checks which injected methods are skipped because a subclass overrides them.
+ */
+public class InjectOverrideTest {
+	static class Base {
+		int baseCalls;
+		int packageCalls;
+		int privateCalls;
+
+		@Inject
+		public void setValue(String value) {
+			baseCalls++;
+		}
+
+		@Inject
+		void setPackageValue(String value) {
+			packageCalls++;
+		}
+
+		@Inject
+		private void setPrivateValue(String value) {
+			privateCalls++;
+		}
+
+		int getPrivateCalls() {
+			return privateCalls;
+		}
+	}
+
+	static class Middle extends Base {
+		// does not redeclare the methods
+	}
+
+	static class Leaf extends Middle {
+		int leafCalls;
+		int leafPackageCalls;
+		int leafPrivateCalls;
+
+		@Override
+		@Inject
+		public void setValue(String value) {
+			leafCalls++;
+		}
+
+		@Override
+		void setPackageValue(String value) {
+			leafPackageCalls++;
+		}
+
+		@Inject
+		private void setPrivateValue(String value) {
+			leafPrivateCalls++;
+		}
+	}
+
+	@Test
+	public void testOverriddenMethods() {
+		IEclipseContext context = EclipseContextFactory.create();
+		context.set(String.class, "Value");
+
+		Leaf leaf = ContextInjectionFactory.make(Leaf.class, context);
+		assertEquals(0, leaf.baseCalls);
+		assertEquals(1, leaf.leafCalls);
+		// overridden without @Inject: neither method is injected
+		assertEquals(0, leaf.packageCalls);
+		assertEquals(0, leaf.leafPackageCalls);
+		// private methods are never overridden
+		assertEquals(1, leaf.getPrivateCalls());
+		assertEquals(1, leaf.leafPrivateCalls);
+
+		// the superclass on its own is unaffected by the subclass
+		Middle middle = ContextInjectionFactory.make(Middle.class, context);
+		assertEquals(1, middle.baseCalls);
+		assertEquals(1, middle.packageCalls);
+		assertEquals(1, middle.getPrivateCalls());
+	}
+}
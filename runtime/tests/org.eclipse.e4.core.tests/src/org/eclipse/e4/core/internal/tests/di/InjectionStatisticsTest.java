@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.e4.core.internal.tests.di;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.eclipse.e4.core.contexts.ContextInjectionFactory;
+import org.eclipse.e4.core.contexts.EclipseContextFactory;
+import org.eclipse.e4.core.contexts.IEclipseContext;
+import org.eclipse.e4.core.internal.contexts.ContextObjectSupplier;
+import org.eclipse.e4.core.internal.di.InjectionStatistics;
+import org.eclipse.e4.core.internal.di.InjectionStatistics.ClassStatistics;
+import org.eclipse.e4.core.internal.di.InjectionStatistics.SupplierStatistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class InjectionStatisticsTest {
+
+	static class Target {
+		String value;
+
+		@Inject
+		public void setValue(@Named("value") String value) {
+			this.value = value;
+		}
+	}
+
+	private boolean wasEnabled;
+
+	@Before
+	public void setUp() {
+		wasEnabled = InjectionStatistics.isEnabled();
+		InjectionStatistics.setEnabled(true);
+		InjectionStatistics.reset();
+	}
+
+	@After
+	public void tearDown() {
+		InjectionStatistics.setEnabled(wasEnabled);
+		InjectionStatistics.reset();
+	}
+
+	@Test
+	public void testMakeAndInject() {
+		IEclipseContext context = EclipseContextFactory.create();
+		context.set("value", "a");
+		ContextInjectionFactory.make(Target.class, context);
+		ContextInjectionFactory.inject(new Target(), context);
+
+		ClassStatistics statistics = InjectionStatistics.getClassStatistics().get(Target.class.getName());
+		assertNotNull(statistics);
+		assertEquals(1, statistics.getMakes());
+		assertEquals(2, statistics.getInjections());
+		assertTrue(statistics.getMakeTime() > 0);
+		assertTrue(statistics.getMakeTime() <= statistics.getTotalTime());
+		assertEquals(0, statistics.getReinjections());
+
+		SupplierStatistics supplier = InjectionStatistics.getSupplierStatistics().get(ContextObjectSupplier.class.getName());
+		assertNotNull(supplier);
+		assertTrue(supplier.getResolutions() >= 2);
+		assertTrue(supplier.getArguments() >= 2);
+		assertTrue(InjectionStatistics.dump(10).contains(Target.class.getName()));
+	}
+
+	@Test
+	public void testReinjections() {
+		IEclipseContext context = EclipseContextFactory.create();
+		context.set("value", "a");
+		Target target = ContextInjectionFactory.make(Target.class, context);
+		context.set("value", "b");
+		context.set("value", "c");
+		assertEquals("c", target.value);
+
+		ClassStatistics statistics = InjectionStatistics.getClassStatistics().get(Target.class.getName());
+		assertEquals(2, statistics.getReinjections());
+		assertEquals(statistics, InjectionStatistics.getMostReinjectedClasses(1).get(0));
+	}
+
+	@Test
+	public void testDisabled() {
+		InjectionStatistics.setEnabled(false);
+		IEclipseContext context = EclipseContextFactory.create();
+		context.set("value", "a");
+		ContextInjectionFactory.make(Target.class, context);
+		assertNull(InjectionStatistics.getClassStatistics().get(Target.class.getName()));
+		assertTrue(InjectionStatistics.getSupplierStatistics().isEmpty());
+	}
+}
@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.e4.core.internal.tests.di;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.eclipse.e4.core.contexts.ContextInjectionFactory;
+import org.eclipse.e4.core.contexts.EclipseContextFactory;
+import org.eclipse.e4.core.contexts.IEclipseContext;
+import org.eclipse.e4.core.di.InjectionException;
+import org.junit.Test;
+
+public class SingletonCreationTest {
+
+	static final AtomicInteger slowCount = new AtomicInteger();
+	static final CountDownLatch firstStarted = new CountDownLatch(1);
+	static final CountDownLatch secondStarted = new CountDownLatch(1);
+	static final CountDownLatch mutualStarted = new CountDownLatch(2);
+
+	@Singleton
+	public static class SlowSingleton {
+		@Inject
+		public SlowSingleton() throws InterruptedException {
+			slowCount.incrementAndGet();
+			Thread.sleep(100);
+		}
+	}
+
+	@Singleton
+	public static class FirstSingleton {
+		@Inject
+		public FirstSingleton() throws InterruptedException {
+			firstStarted.countDown();
+			// only completes if the second singleton is created concurrently
+			assertTrue(secondStarted.await(10, TimeUnit.SECONDS));
+		}
+	}
+
+	@Singleton
+	public static class SecondSingleton {
+		@Inject
+		public SecondSingleton() throws InterruptedException {
+			secondStarted.countDown();
+			assertTrue(firstStarted.await(10, TimeUnit.SECONDS));
+		}
+	}
+
+	@Singleton
+	public static class CyclicSingleton {
+		@Inject
+		public CyclicSingleton(IEclipseContext context) {
+			ContextInjectionFactory.make(CyclicSingleton.class, context);
+		}
+	}
+
+	@Singleton
+	public static class MutualFirstSingleton {
+		@Inject
+		public MutualFirstSingleton(IEclipseContext context) throws InterruptedException {
+			mutualStarted.countDown();
+			// both creations are in progress before either asks for the other
+			assertTrue(mutualStarted.await(10, TimeUnit.SECONDS));
+			ContextInjectionFactory.make(MutualSecondSingleton.class, context);
+		}
+	}
+
+	@Singleton
+	public static class MutualSecondSingleton {
+		@Inject
+		public MutualSecondSingleton(IEclipseContext context) throws InterruptedException {
+			mutualStarted.countDown();
+			assertTrue(mutualStarted.await(10, TimeUnit.SECONDS));
+			ContextInjectionFactory.make(MutualFirstSingleton.class, context);
+		}
+	}
+
+	@Test
+	public void testCreatedOnce() throws Exception {
+		IEclipseContext context = EclipseContextFactory.create();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			Future<?>[] results = new Future<?>[8];
+			for (int i = 0; i < results.length; i++) {
+				results[i] = executor.submit(() -> ContextInjectionFactory.make(SlowSingleton.class, context));
+			}
+			Object instance = results[0].get(10, TimeUnit.SECONDS);
+			assertNotNull(instance);
+			for (Future<?> result : results) {
+				assertSame(instance, result.get(10, TimeUnit.SECONDS));
+			}
+			assertEquals(1, slowCount.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testParallelCreation() throws Exception {
+		IEclipseContext context = EclipseContextFactory.create();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<?> first = executor.submit(() -> ContextInjectionFactory.make(FirstSingleton.class, context));
+			Future<?> second = executor.submit(() -> ContextInjectionFactory.make(SecondSingleton.class, context));
+			assertNotNull(first.get(20, TimeUnit.SECONDS));
+			assertNotNull(second.get(20, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testConcurrentCycle() throws Exception {
+		IEclipseContext context = EclipseContextFactory.create();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<?> first = executor.submit(() -> ContextInjectionFactory.make(MutualFirstSingleton.class, context));
+			Future<?> second = executor.submit(() -> ContextInjectionFactory.make(MutualSecondSingleton.class, context));
+			// neither singleton can be created, but both threads must return
+			assertCycleDetected(first);
+			assertCycleDetected(second);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void assertCycleDetected(Future<?> result) throws Exception {
+		try {
+			result.get(20, TimeUnit.SECONDS);
+			fail("Circular dependency not detected");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof InjectionException);
+		}
+	}
+
+	@Test(expected = InjectionException.class)
+	public void testCycle() {
+		IEclipseContext context = EclipseContextFactory.create();
+		ContextInjectionFactory.make(CyclicSingleton.class, context);
+	}
+}
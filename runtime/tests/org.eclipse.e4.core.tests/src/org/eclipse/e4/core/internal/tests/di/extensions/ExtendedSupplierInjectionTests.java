@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2014, 2015 IBM Corporation and others.
+ * Copyright (c) 2014, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,6 +15,7 @@
 package org.eclipse.e4.core.internal.tests.di.extensions;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Dictionary;
@@ -163,4 +164,30 @@ public class ExtendedSupplierInjectionTests {
 		}
 	}
 
+	/** the cache of found and missing suppliers follows service changes */
+	@Test
+	public void testSupplierCacheInvalidation() {
+		BundleContext bc = FrameworkUtil.getBundle(getClass()).getBundleContext();
+		String qualifier = getClass().getName() + ".unknownQualifier";
+		assertNull(ProviderHelper.findProvider(qualifier, null));
+		assertNull(ProviderHelper.findProvider(qualifier, null));
+
+		ExtendedObjectSupplier supplier = new ExtendedObjectSupplier() {
+			@Override
+			public Object get(IObjectDescriptor descriptor, IRequestor requestor, boolean track, boolean group) {
+				return null;
+			}
+		};
+		Dictionary<String, Object> properties = new Hashtable<>();
+		properties.put(ExtendedObjectSupplier.SERVICE_CONTEXT_KEY, qualifier);
+		ServiceRegistration<?> sr = bc.registerService(ExtendedObjectSupplier.SERVICE_NAME, supplier, properties);
+		try {
+			assertEquals(supplier, ProviderHelper.findProvider(qualifier, null));
+			assertEquals(supplier, ProviderHelper.findProvider(qualifier, null));
+		} finally {
+			sr.unregister();
+		}
+		assertNull(ProviderHelper.findProvider(qualifier, null));
+	}
+
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2015 IBM Corporation and others.
+ * Copyright (c) 2010, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -18,12 +18,26 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Dictionary;
+import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
+import javax.inject.Qualifier;
 import javax.inject.Singleton;
 
 import org.eclipse.e4.core.contexts.ContextInjectionFactory;
@@ -33,6 +47,9 @@ import org.eclipse.e4.core.di.IInjector;
 import org.eclipse.e4.core.di.InjectorFactory;
 import org.eclipse.e4.core.di.annotations.Optional;
 import org.eclipse.e4.core.di.extensions.EventTopic;
+import org.eclipse.e4.core.di.suppliers.ExtendedObjectSupplier;
+import org.eclipse.e4.core.di.suppliers.IObjectDescriptor;
+import org.eclipse.e4.core.di.suppliers.IRequestor;
 import org.eclipse.e4.core.di.internal.extensions.util.EventUtils;
 import org.eclipse.e4.core.internal.tests.CoreTestsActivator;
 import org.junit.Before;
@@ -40,6 +57,7 @@ import org.junit.Test;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.BundleException;
+import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventAdmin;
 import org.osgi.service.event.EventConstants;
@@ -110,6 +128,58 @@ public class InjectionEventTest {
 		}
 	}
 
+	// Class used to test concurrent deliveries
+	static class InjectConcurrentEvent {
+		public Set<String> received = Collections.synchronizedSet(new HashSet<>());
+
+		@Inject @Optional
+		public void receivedEvent(@EventTopic("e4/test/concurrent") String data) {
+			received.add(data);
+		}
+	}
+
+	// Class used to test failing subscribers
+	static class InjectFailingEvent {
+		public int counter1 = 0;
+
+		@Inject @Optional
+		public void receivedEvent(@EventTopic("e4/test/failing") String data) {
+			counter1++;
+			throw new IllegalStateException("expected failure");
+		}
+	}
+
+	// Class used to test the order of deliveries
+	static class InjectEventSequence {
+		public List<String> received = new ArrayList<>();
+
+		@Inject @Optional
+		public void receivedEvent(@EventTopic("e4/test/sequence") String data) {
+			received.add(data);
+		}
+	}
+
+	@Qualifier
+	@Documented
+	@Retention(RetentionPolicy.RUNTIME)
+	public @interface OtherContext {
+		// supplied by a test supplier
+	}
+
+	// Class used to test events delivered together with the context
+	static class InjectContextEvent {
+		public int counter1 = 0;
+		public IEclipseContext context;
+		public String data;
+
+		@Inject @Optional
+		public void receivedEvent(@OtherContext IEclipseContext context, @EventTopic("e4/test/contextEvent") String data) {
+			counter1++;
+			this.context = context;
+			this.data = data;
+		}
+	}
+
 	// This tests and demos sending events
 	static public class EventAdminHelper {
 		@Inject
@@ -233,6 +303,34 @@ public class InjectionEventTest {
 		assertFalse(testFailed); // target would have asserted if it is still subscribed
 	}
 
+	@Test
+	public void testWildCardAndExactTopic() {
+		IEclipseContext context = EclipseContextFactory.create();
+		InjectStarEvent star = ContextInjectionFactory.make(InjectStarEvent.class, context);
+		InjectTargetEvent exact = ContextInjectionFactory.make(InjectTargetEvent.class, context);
+
+		helper.sendEvent("e4/test/eventInjection", "data");
+
+		// each subscriber gets the event once, although the topics overlap
+		assertEquals(1, star.counter1);
+		assertEquals(1, exact.counter1);
+		context.dispose();
+	}
+
+	@Test
+	public void testFailingSubscriber() {
+		IEclipseContext context = EclipseContextFactory.create();
+		InjectFailingEvent first = ContextInjectionFactory.make(InjectFailingEvent.class, context);
+		InjectFailingEvent second = ContextInjectionFactory.make(InjectFailingEvent.class, context);
+
+		helper.sendEvent("e4/test/failing", "data");
+
+		// the failure of one subscriber is logged, the other one still gets the event
+		assertEquals(1, first.counter1);
+		assertEquals(1, second.counter1);
+		context.dispose();
+	}
+
 	@Test
 	public void testInjectWildCard() {
 		IEclipseContext context = EclipseContextFactory.create();
@@ -257,6 +355,74 @@ public class InjectionEventTest {
 		assertEquals("sample", target.event.getProperty("data2"));
 	}
 
+	@Test
+	public void testConcurrentEvents() throws InterruptedException {
+		IEclipseContext context = EclipseContextFactory.create();
+		InjectConcurrentEvent target = ContextInjectionFactory.make(InjectConcurrentEvent.class, context);
+
+		int count = 200;
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		for (int i = 0; i < count; i++) {
+			String data = "data" + i;
+			executor.execute(() -> helper.sendEvent("e4/test/concurrent", data));
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+		// every delivery injected its own event
+		assertEquals(count, target.received.size());
+		context.dispose();
+	}
+
+	@Test
+	public void testEventsInUpdateGroup() {
+		IEclipseContext context = EclipseContextFactory.create();
+		InjectEventSequence target = ContextInjectionFactory.make(InjectEventSequence.class, context);
+
+		IInjector injector = InjectorFactory.getDefault();
+		injector.beginUpdates();
+		try {
+			helper.sendEvent("e4/test/sequence", "data1");
+			helper.sendEvent("e4/test/sequence", "data2");
+			// events are delivered right away, not coalesced like state changes
+			assertEquals(List.of("data1", "data2"), target.received);
+		} finally {
+			injector.endUpdates();
+		}
+		assertEquals(List.of("data1", "data2"), target.received);
+		context.dispose();
+	}
+
+	@Test
+	public void testEventWithContext() {
+		BundleContext bundleContext = CoreTestsActivator.getDefault().getBundleContext();
+		IEclipseContext other = EclipseContextFactory.create();
+		ExtendedObjectSupplier supplier = new ExtendedObjectSupplier() {
+			@Override
+			public Object get(IObjectDescriptor descriptor, IRequestor requestor, boolean track, boolean group) {
+				return other;
+			}
+		};
+		Dictionary<String, Object> properties = new Hashtable<>();
+		properties.put(ExtendedObjectSupplier.SERVICE_CONTEXT_KEY, OtherContext.class.getName());
+		ServiceRegistration<?> registration = bundleContext.registerService(ExtendedObjectSupplier.SERVICE_NAME,
+				supplier, properties);
+		try {
+			IEclipseContext context = EclipseContextFactory.create();
+			InjectContextEvent target = ContextInjectionFactory.make(InjectContextEvent.class, context);
+
+			helper.sendEvent("e4/test/contextEvent", "data1");
+			assertEquals(1, target.counter1);
+			assertEquals("data1", target.data);
+			// the injecting context overrides other suppliers, also on delivery
+			assertSame(context, target.context);
+			context.dispose();
+		} finally {
+			registration.unregister();
+			other.dispose();
+		}
+	}
+
 	private void wrapSetup() throws InvocationTargetException, InstantiationException {
 		IEclipseContext context = EclipseContextFactory.create();
 		InjectTarget target = ContextInjectionFactory.make(InjectTarget.class, context);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2015 IBM Corporation and others.
+ * Copyright (c) 2010, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -20,6 +20,7 @@ import static org.junit.Assert.assertNull;
 
 import javax.inject.Inject;
 
+import org.eclipse.core.runtime.preferences.DefaultScope;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences;
 import org.eclipse.core.runtime.preferences.InstanceScope;
 import org.eclipse.e4.core.contexts.ContextInjectionFactory;
@@ -151,6 +152,17 @@ public class InjectionPreferencesTest {
 		}
 	}
 
+	static class InjectTargetOtherKey {
+		public int counter = 0;
+		public String pref;
+
+		@Inject
+		public void setPrefs(@Optional @Preference("otherKey") String string) {
+			counter++;
+			pref = string;
+		}
+	}
+
 	@Test
 	public void testPreferencesQualifier() throws BackingStoreException {
 		setPreference(TEST_PREFS_KEY, "abc");
@@ -184,6 +196,33 @@ public class InjectionPreferencesTest {
 		assertEquals("xyz", target.prefOptional2);
 	}
 
+	@Test
+	public void testOnlyChangedKeyNotified() throws BackingStoreException {
+		setPreference(TEST_PREFS_KEY, "abc");
+		setPreference("otherKey", "def");
+		IEclipseContext context = EclipseContextFactory.create();
+		InjectTarget target = ContextInjectionFactory.make(InjectTarget.class, context);
+		InjectTargetOtherKey otherTarget1 = ContextInjectionFactory.make(InjectTargetOtherKey.class, context);
+		InjectTargetOtherKey otherTarget2 = ContextInjectionFactory.make(InjectTargetOtherKey.class, context);
+		assertEquals(1, target.counter);
+		assertEquals(1, otherTarget1.counter);
+		assertEquals("def", otherTarget2.pref);
+
+		// a change on the same node is only passed to the objects using the key
+		setPreference(TEST_PREFS_KEY, "xyz");
+		assertEquals(2, target.counter);
+		assertEquals(1, otherTarget1.counter);
+		assertEquals(1, otherTarget2.counter);
+
+		setPreference("otherKey", "ghi");
+		assertEquals(2, target.counter);
+		assertEquals(2, otherTarget1.counter);
+		assertEquals("ghi", otherTarget1.pref);
+		assertEquals(2, otherTarget2.counter);
+		assertEquals("ghi", otherTarget2.pref);
+		context.dispose();
+	}
+
 	@Test
 	public void testBaseTypeConversion() throws BackingStoreException {
 		// setup preferences
@@ -277,6 +316,47 @@ public class InjectionPreferencesTest {
 		node.flush();
 	}
 
+	@Test
+	public void testDefaultValueChange() {
+		IEclipsePreferences defaults = DefaultScope.INSTANCE.getNode(TEST_PREFS_NODE);
+		InstanceScope.INSTANCE.getNode(TEST_PREFS_NODE).remove(TEST_PREFS_KEY);
+		defaults.put(TEST_PREFS_KEY, "default1");
+		IEclipseContext context = EclipseContextFactory.create();
+		InjectTargetConstructor target = ContextInjectionFactory.make(InjectTargetConstructor.class, context);
+		assertEquals("default1", target.prefNode);
+
+		// the cached value of the node is discarded
+		defaults.put(TEST_PREFS_KEY, "default2");
+		target = ContextInjectionFactory.make(InjectTargetConstructor.class, context);
+		assertEquals("default2", target.prefNode);
+		defaults.remove(TEST_PREFS_KEY);
+		context.dispose();
+	}
+
+	@Test
+	public void testNodeRemoved() throws BackingStoreException {
+		setPreference(TEST_PREFS_KEY, TEST_PREFS_NODE, "123");
+		IEclipseContext context = EclipseContextFactory.create();
+		InjectTarget target = ContextInjectionFactory.make(InjectTarget.class, context);
+		assertEquals("123", target.prefNode);
+
+		// the values cached for the removed node are discarded
+		InstanceScope.INSTANCE.getNode(TEST_PREFS_NODE).removeNode();
+		setPreference(TEST_PREFS_KEY, TEST_PREFS_NODE, "456");
+		InjectTarget newTarget = ContextInjectionFactory.make(InjectTarget.class, context);
+		assertEquals(1, newTarget.counterNode);
+		assertEquals("456", newTarget.prefNode);
+		InjectTargetConstructor constructorTarget = ContextInjectionFactory.make(InjectTargetConstructor.class,
+				context);
+		assertEquals("456", constructorTarget.prefNode);
+
+		// changes of the new node are passed on
+		setPreference(TEST_PREFS_KEY, TEST_PREFS_NODE, "789");
+		assertEquals(2, newTarget.counterNode);
+		assertEquals("789", newTarget.prefNode);
+		context.dispose();
+	}
+
 	@Test
 	public void testPreferencesConstructor() throws BackingStoreException {
 		setPreference(TEST_PREFS_KEY, "abc");
@@ -2,8 +2,10 @@ package org.eclipse.e4.core.internal.tests.di.extensions;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Hashtable;
@@ -17,6 +19,8 @@ import org.eclipse.e4.core.contexts.EclipseContextFactory;
 import org.eclipse.e4.core.contexts.IEclipseContext;
 import org.eclipse.e4.core.di.annotations.Optional;
 import org.eclipse.e4.core.di.extensions.Service;
+import org.eclipse.e4.core.di.internal.extensions.ServiceSupplier;
+import org.eclipse.e4.core.di.suppliers.ExtendedObjectSupplier;
 import org.junit.After;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -119,6 +123,20 @@ public class ServiceSupplierTestCase {
 		assertSame(FilterServiceB.class, bean.serviceList.get(1).getClass());
 	}
 
+	@Test
+	public void testServiceListNotShared() {
+		IEclipseContext serviceContext = EclipseContextFactory.getServiceContext(FrameworkUtil.getBundle(getClass()).getBundleContext());
+		TestBean bean = ContextInjectionFactory.make(TestBean.class, serviceContext);
+		TestBean bean2 = ContextInjectionFactory.make(TestBean.class, serviceContext);
+
+		assertSame(bean.service, bean2.service);
+		assertEquals(bean.serviceList, bean2.serviceList);
+		assertNotSame(bean.serviceList, bean2.serviceList);
+		// injected lists may be changed by the requestor
+		bean.serviceList.clear();
+		assertEquals(4, bean2.serviceList.size());
+	}
+
 	@Test(timeout = 30000)
 	public void testDynamicAdd() {
 		BundleContext context = FrameworkUtil.getBundle(getClass()).getBundleContext();
@@ -234,6 +252,74 @@ public class ServiceSupplierTestCase {
 		assertSame(SampleServiceA.class, bean.service.getClass());
 	}
 
+	@Test(timeout = 30000)
+	public void testFilteredRefresh() throws Exception {
+		BundleContext context = FrameworkUtil.getBundle(getClass()).getBundleContext();
+		IEclipseContext serviceContext = EclipseContextFactory.getServiceContext(context);
+		TestBean bean = ContextInjectionFactory.make(TestBean.class, serviceContext);
+		TestStaticFilterBean filterBean = ContextInjectionFactory.make(TestStaticFilterBean.class, serviceContext);
+		ServiceSupplier supplier = getServiceSupplier(context);
+		long skipped = supplier.getRefreshStatistics().getSkippedRefreshes();
+
+		bean.listUpdated = false;
+		for (int i = 0; i < 10; i++) {
+			Hashtable<String, Object> properties = new Hashtable<>();
+			properties.put("service.ranking", -10 - i); //$NON-NLS-1$
+			this.registrations.add(context.registerService(TestService.class, new TestService() {
+				// nothing todo
+			}, properties));
+		}
+		spinWait(() -> bean.listUpdated && bean.serviceList.size() == 14);
+		// give the other requestors some time
+		Thread.sleep(100);
+
+		assertEquals(1, filterBean.serviceInjectionCount);
+		assertEquals(1, filterBean.serviceListInjectionCount);
+		assertTrue(supplier.getRefreshStatistics().getSkippedRefreshes() >= skipped + 2);
+		// the registrations were refreshed in less than one go per service
+		assertTrue(bean.serviceListInjectionCount < 11);
+	}
+
+	@Test(timeout = 30000)
+	public void testRegisterAndUnregister() throws Exception {
+		BundleContext context = FrameworkUtil.getBundle(getClass()).getBundleContext();
+		IEclipseContext serviceContext = EclipseContextFactory.getServiceContext(context);
+		TestBean bean = ContextInjectionFactory.make(TestBean.class, serviceContext);
+
+		for (int i = 0; i < 10; i++) {
+			Hashtable<String, Object> properties = new Hashtable<>();
+			properties.put("service.ranking", 100); //$NON-NLS-1$
+			context.registerService(TestService.class, new TestService() {
+				// nothing todo
+			}, properties).unregister();
+			// leave the pending refresh some time to start
+			Thread.sleep(i * 5);
+		}
+
+		// the refreshes must not get stuck on the removed services
+		TestService t = new TestService() {
+			// nothing todo
+		};
+		Hashtable<String, Object> properties = new Hashtable<>();
+		properties.put("service.ranking", 10000); //$NON-NLS-1$
+		this.registrations.add(context.registerService(TestService.class, t, properties));
+		spinWait(() -> bean.service == t && bean.serviceList.size() == 5);
+		assertSame(t, bean.serviceList.get(0));
+	}
+
+	private ServiceSupplier getServiceSupplier(BundleContext context) throws Exception {
+		for (ServiceReference<ExtendedObjectSupplier> reference : context.getServiceReferences(
+				ExtendedObjectSupplier.class,
+				"(dependency.injection.annotation=org.eclipse.e4.core.di.extensions.Service)")) { //$NON-NLS-1$
+			ExtendedObjectSupplier supplier = context.getService(reference);
+			context.ungetService(reference);
+			if (supplier instanceof ServiceSupplier) {
+				return (ServiceSupplier) supplier;
+			}
+		}
+		throw new AssertionError("ServiceSupplier not registered"); //$NON-NLS-1$
+	}
+
 	@Test
 	public void testOptionalReferences() throws InterruptedException {
 		BundleContext context = FrameworkUtil.getBundle(getClass()).getBundleContext();
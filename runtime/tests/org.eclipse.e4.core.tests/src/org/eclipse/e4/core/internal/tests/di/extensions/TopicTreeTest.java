@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.e4.core.internal.tests.di.extensions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.eclipse.e4.core.di.internal.extensions.util.TopicTree;
+import org.junit.Test;
+
+/**
+ * Checks the topic matching used to dispatch events to subscribers.
+ */
+public class TopicTreeTest {
+
+	@Test
+	public void testExactTopic() {
+		TopicTree<String> tree = new TopicTree<>();
+		assertTrue(tree.add("a/b/c", "s1"));
+		assertFalse(tree.add("a/b/c", "s2"));
+
+		assertEquals(Arrays.asList("s1", "s2"), tree.match("a/b/c"));
+		assertEquals(Collections.emptyList(), tree.match("a/b"));
+		assertEquals(Collections.emptyList(), tree.match("a/b/c/d"));
+		assertEquals(Collections.emptyList(), tree.match("a/b/x"));
+	}
+
+	@Test
+	public void testWildcardTopic() {
+		TopicTree<String> tree = new TopicTree<>();
+		tree.add("a/*", "a");
+		tree.add("a/b/*", "ab");
+		tree.add("*", "all");
+		tree.add("a/b", "exact");
+
+		assertEquals(new HashSet<>(Arrays.asList("all", "a", "exact")), new HashSet<>(tree.match("a/b")));
+		assertEquals(new HashSet<>(Arrays.asList("all", "a", "ab")), new HashSet<>(tree.match("a/b/c/d")));
+		// a wildcard does not match its own prefix
+		assertEquals(Arrays.asList("all"), tree.match("a"));
+		assertEquals(Arrays.asList("all"), tree.match("x/y"));
+	}
+
+	@Test
+	public void testRemove() {
+		TopicTree<String> tree = new TopicTree<>();
+		tree.add("a/b", "s1");
+		tree.add("a/b", "s2");
+		tree.add("a/*", "s3");
+		assertFalse(tree.isEmpty());
+
+		assertFalse(tree.remove("a/b", "s1"));
+		assertFalse(tree.remove("a/b", "unknown"));
+		assertFalse(tree.remove("x/y", "s1"));
+		assertEquals(Arrays.asList("s3", "s2"), tree.match("a/b"));
+
+		assertTrue(tree.remove("a/b", "s2"));
+		assertEquals(Arrays.asList("s3"), tree.match("a/b"));
+		assertEquals(Arrays.asList("s3"), tree.match("a/c"));
+		assertFalse(tree.isEmpty());
+
+		assertTrue(tree.remove("a/*", "s3"));
+		assertTrue(tree.isEmpty());
+		assertEquals(Collections.emptyList(), tree.match("a/b"));
+
+		// pruned nodes are recreated
+		assertTrue(tree.add("a/b", "s1"));
+		assertEquals(Arrays.asList("s1"), tree.match("a/b"));
+	}
+}
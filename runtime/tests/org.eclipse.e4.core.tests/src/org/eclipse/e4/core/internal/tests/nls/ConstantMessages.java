@@ -0,0 +1,28 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.core.internal.tests.nls;
+
+/**
+ * Load messages from a relative positioned resource bundle
+ * (./ConstantMessages.properties) into a class that also declares a constant.
+ */
+public class ConstantMessages {
+
+	// not translated, the constant cannot be set
+	public static final String message_constant = "Constant";
+
+	public String message;
+
+	public String message_one;
+}
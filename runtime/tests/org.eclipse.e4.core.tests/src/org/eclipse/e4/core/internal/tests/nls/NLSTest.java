@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2014, 2015  Dirk Fauth and others.
+ * Copyright (c) 2014, 2022  Dirk Fauth and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -17,6 +17,8 @@ package org.eclipse.e4.core.internal.tests.nls;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 import java.util.Locale;
 
@@ -64,6 +66,25 @@ public class NLSTest {
 		ResourcesMessages resourcesMessages;
 	}
 
+	static class TestConstantObject {
+		@Inject
+		@Translation
+		ConstantMessages constantMessages;
+	}
+
+	static class TestSeveralMessagesObject {
+		int updates;
+		SimpleMessages simpleMessages;
+		Messages messages;
+
+		@Inject
+		void setMessages(@Translation SimpleMessages simpleMessages, @Translation Messages messages) {
+			updates++;
+			this.simpleMessages = simpleMessages;
+			this.messages = messages;
+		}
+	}
+
 	private IEclipseContext context;
 	private Locale beforeLocale;
 
@@ -895,4 +916,51 @@ public class NLSTest {
 				messages.messageNine_Sub);
 	}
 
-}
\ No newline at end of file
+	@Test
+	public void testMessagesWithConstant() {
+		this.context.set(TranslationService.LOCALE, Locale.ENGLISH);
+		TestConstantObject o = ContextInjectionFactory.make(TestConstantObject.class, this.context);
+
+		ConstantMessages messages = o.constantMessages;
+
+		// the constant is skipped, the other fields are still translated
+		assertNotNull(messages);
+		assertEquals("ConstantMessage", messages.message);
+		assertEquals("ConstantMessageUnderscore", messages.message_one);
+	}
+
+	@Test
+	public void testLocaleChangeWithSeveralMessageClasses() {
+		this.context.set(TranslationService.LOCALE, Locale.ENGLISH);
+		TestSeveralMessagesObject o1 = ContextInjectionFactory.make(TestSeveralMessagesObject.class, this.context);
+		TestSeveralMessagesObject o2 = ContextInjectionFactory.make(TestSeveralMessagesObject.class, this.context);
+		assertEquals(1, o1.updates);
+		assertEquals(1, o2.updates);
+
+		// each object is updated once for both message classes
+		this.context.set(TranslationService.LOCALE, Locale.GERMAN);
+		assertEquals(2, o1.updates);
+		assertEquals(2, o2.updates);
+		assertEquals("SimpleNachricht", o1.simpleMessages.message);
+		assertEquals("Nachricht", o1.messages.message);
+		assertSame(o1.simpleMessages, o2.simpleMessages);
+		assertSame(o1.messages, o2.messages);
+	}
+
+	@Test
+	public void testMessageInstanceShared() {
+		this.context.set(TranslationService.LOCALE, Locale.ENGLISH);
+		TestSimpleObject o1 = ContextInjectionFactory.make(TestSimpleObject.class, this.context);
+		TestSimpleObject o2 = ContextInjectionFactory.make(TestSimpleObject.class, this.context);
+
+		// instances are cached per messages class and locale
+		assertSame(o1.simpleMessages, o2.simpleMessages);
+		SimpleMessages english = o1.simpleMessages;
+
+		this.context.set(TranslationService.LOCALE, Locale.GERMAN);
+		TestSimpleObject o3 = ContextInjectionFactory.make(TestSimpleObject.class, this.context);
+		assertNotSame(english, o3.simpleMessages);
+		assertEquals("SimpleNachricht", o3.simpleMessages.message);
+	}
+
+}
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.e4.core.internal.tests.nls;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.e4.core.internal.services.ResourceBundleHelper;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+
+/**
+ * Checks the loading of properties based resource bundles out of OSGi bundles.
+ */
+public class ResourceBundleHelperTest {
+
+	private static final String BASE_NAME = "org/eclipse/e4/core/internal/tests/nls/messages";
+
+	/**
+	 * @return a bundle serving the resources of this test class and counting the
+	 *         entries looked up
+	 */
+	private Bundle createBundle(long id, long lastModified, AtomicInteger entryCount) {
+		return (Bundle) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Bundle.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getBundleId":
+						return id;
+					case "getLastModified":
+						return lastModified;
+					case "getEntry":
+						entryCount.incrementAndGet();
+						return getClass().getResource("/" + args[0]);
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "equals":
+						return proxy == args[0];
+					default:
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	@Test
+	public void testPropertiesCached() {
+		AtomicInteger entryCount = new AtomicInteger();
+		Bundle bundle = createBundle(-1000, 1, entryCount);
+
+		ResourceBundle first = ResourceBundleHelper.getEquinoxResourceBundle(BASE_NAME, Locale.GERMAN, bundle);
+		assertEquals("Nachricht", first.getString("message"));
+		// the parent holds the keys of the root bundle
+		assertEquals("MessageCamelCaseDot", first.getString("message.three"));
+		int entries = entryCount.get();
+		assertTrue(entries > 0);
+
+		ResourceBundle second = ResourceBundleHelper.getEquinoxResourceBundle(BASE_NAME, Locale.GERMAN, bundle);
+		assertNotSame(first, second);
+		assertEquals("Nachricht", second.getString("message"));
+		assertEquals(Collections.list(first.getKeys()).size(), Collections.list(second.getKeys()).size());
+		// no further entries were read
+		assertEquals(entries, entryCount.get());
+	}
+
+	@Test
+	public void testUpdatedBundleReadAgain() {
+		AtomicInteger entryCount = new AtomicInteger();
+		ResourceBundleHelper.getEquinoxResourceBundle(BASE_NAME, Locale.GERMAN, createBundle(-1001, 1, entryCount));
+		int entries = entryCount.get();
+
+		// an updated bundle has a new modification time
+		ResourceBundle updated = ResourceBundleHelper.getEquinoxResourceBundle(BASE_NAME, Locale.GERMAN,
+				createBundle(-1001, 2, entryCount));
+		assertEquals("Nachricht", updated.getString("message"));
+		assertEquals(2 * entries, entryCount.get());
+	}
+}
@@ -20,11 +20,13 @@ import org.eclipse.e4.core.internal.tests.about.AboutTest;
 import org.eclipse.e4.core.internal.tests.about.InstalledFeaturesTest;
 import org.eclipse.e4.core.internal.tests.contexts.ActivationTest;
 import org.eclipse.e4.core.internal.tests.contexts.ContextDynamicTest;
+import org.eclipse.e4.core.internal.tests.contexts.ContextStatisticsTest;
 import org.eclipse.e4.core.internal.tests.contexts.DependenciesLeakTest;
 import org.eclipse.e4.core.internal.tests.contexts.EclipseContextTest;
 import org.eclipse.e4.core.internal.tests.contexts.NeutralValueTest;
 import org.eclipse.e4.core.internal.tests.contexts.ReparentingTest;
 import org.eclipse.e4.core.internal.tests.contexts.RunAndTrackTest;
+import org.eclipse.e4.core.internal.tests.contexts.SharedFunctionResultsTest;
 import org.eclipse.e4.core.internal.tests.contexts.StrongIterableTest;
 import org.eclipse.e4.core.internal.tests.contexts.inject.ActivationInjectionTest;
 import org.eclipse.e4.core.internal.tests.contexts.inject.AnnotationsInjectionTest;
@@ -47,14 +49,18 @@ import org.eclipse.e4.core.internal.tests.contexts.inject.ServiceContextTest;
 import org.eclipse.e4.core.internal.tests.contexts.inject.TestConstructorInjection;
 import org.eclipse.e4.core.internal.tests.di.AutoConstructWithCreatableTest;
 import org.eclipse.e4.core.internal.tests.di.DisposeClassLinkTest;
+import org.eclipse.e4.core.internal.tests.di.GeneratedInjectorTest;
 import org.eclipse.e4.core.internal.tests.di.InjectArraysTest;
 import org.eclipse.e4.core.internal.tests.di.InjectBaseTypeTest;
 import org.eclipse.e4.core.internal.tests.di.InjectBridgeTest;
+import org.eclipse.e4.core.internal.tests.di.InjectOverrideTest;
+import org.eclipse.e4.core.internal.tests.di.InjectionStatisticsTest;
 import org.eclipse.e4.core.internal.tests.di.InjectionOrderTest;
 import org.eclipse.e4.core.internal.tests.di.InjectionResultLeakTest;
 import org.eclipse.e4.core.internal.tests.di.InvokeTest;
 import org.eclipse.e4.core.internal.tests.di.InvokeTestMissingAnnotation;
 import org.eclipse.e4.core.internal.tests.di.RecursiveObjectCreationTest;
+import org.eclipse.e4.core.internal.tests.di.SingletonCreationTest;
 import org.eclipse.e4.core.internal.tests.di.extensions.ExtendedSupplierInjectionTests;
 import org.eclipse.e4.core.internal.tests.di.extensions.InjectionEventTest;
 import org.eclipse.e4.core.internal.tests.di.extensions.InjectionMixedSuppliersTest;
@@ -62,7 +68,9 @@ import org.eclipse.e4.core.internal.tests.di.extensions.InjectionOSGiHandlerTest
 import org.eclipse.e4.core.internal.tests.di.extensions.InjectionOSGiTest;
 import org.eclipse.e4.core.internal.tests.di.extensions.InjectionPreferencesTest;
 import org.eclipse.e4.core.internal.tests.di.extensions.ServiceSupplierTestCase;
+import org.eclipse.e4.core.internal.tests.di.extensions.TopicTreeTest;
 import org.eclipse.e4.core.internal.tests.nls.NLSTest;
+import org.eclipse.e4.core.internal.tests.nls.ResourceBundleHelperTest;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
@@ -78,6 +86,7 @@ import junit.framework.Test;
 		InjectionOSGiTest.class,
 		InjectionOSGiHandlerTest.class,
 		ServiceSupplierTestCase.class,
+		TopicTreeTest.class,
 
 		// About
 		AboutTest.class,
@@ -90,10 +99,12 @@ import junit.framework.Test;
 		InvokeTestMissingAnnotation.class,
 		InjectionResultLeakTest.class,
 		AutoConstructWithCreatableTest.class,
+		GeneratedInjectorTest.class,
 
 		// Contexts
 		StrongIterableTest.class,
 		EclipseContextTest.class,
+		SharedFunctionResultsTest.class,
 		ContextInjectionTest.class,
 		ContextInjectionDisposeTest.class,
 		ContextInjectionFactoryTest.class,
@@ -106,6 +117,7 @@ import junit.framework.Test;
 		InjectStaticContextTest.class,
 		ActivationTest.class,
 		NeutralValueTest.class,
+		ContextStatisticsTest.class,
 
 		// Contexts injection
 		AnnotationsInjectionTest.class,
@@ -120,15 +132,19 @@ import junit.framework.Test;
 		ContextFunctionDynamicsTest.class,
 		InjectArraysTest.class,
 		InjectBridgeTest.class,
+		InjectOverrideTest.class,
+		InjectionStatisticsTest.class,
 		InvokeInRATTest.class,
 		Bug317183Test.class,
 		DependenciesLeakTest.class,
 		ActivationInjectionTest.class,
 		GenericsInjectionTest.class,
 		RecursiveObjectCreationTest.class,
+		SingletonCreationTest.class,
 
 		// NLS
 		NLSTest.class,
+		ResourceBundleHelperTest.class,
 	})
 public class CoreTestSuite {
 	public static Test suite() {